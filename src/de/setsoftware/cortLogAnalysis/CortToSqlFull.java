@@ -1,14 +1,33 @@
 package de.setsoftware.cortLogAnalysis;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
 import de.setsoftware.cortLogAnalysis.model.Event;
 import de.setsoftware.cortLogAnalysis.model.Events;
+import de.setsoftware.cortLogAnalysis.model.SessionSummary;
 
 public class CortToSqlFull {
 
-    private static final class EventProperty {
+    //the number of chunks of rows that are buffered per table in pipelined mode
+    private static final int PIPELINE_CHUNKS = 64;
+
+    //the order of the string keys in the case-insensitive collation of the tables, with the
+    //binary order for keys that only differ in case. Accents and other characters that the
+    //collation regards as equal are still ordered by their code.
+    private static final Comparator<String> KEY_ORDER =
+            String.CASE_INSENSITIVE_ORDER.thenComparing(Comparator.naturalOrder());
+
+    static final class EventProperty {
         private final Event event;
         private final String name;
 
@@ -18,7 +37,35 @@ public class CortToSqlFull {
         }
     }
 
+    /**
+     * Without arguments, all events are loaded into memory before the export.
+     * With "--streaming", the events are exported in time order with bounded memory. At most
+     * "--maxOpenSessions=n" sessions are kept open; with "--sessionTimeoutHours=n", a session without
+     * further events for that time is regarded as complete before. There is no timeout by default, as
+     * there are pauses longer than a day within sessions. When a session that has been written gets
+     * further events, the export fails.
+     * "--batchSize=n" sets the number of rows per INSERT statement (default 1000).
+     * With "--jdbc=url", the data is written directly into the given database instead of SQL files,
+     * with a commit every "--commitInterval=n" rows (default 50000).
+     * With "--tsv", each table is written as a tab separated data file for bulk loading
+     * (name.tsv) and a script with the table definition and the LOAD DATA statement (name.ddl.sql).
+     * With "--pipelined", each table is formatted and written on its own thread.
+     * With "--gzip", the SQL scripts are compressed (name.sql.gz).
+     * With "--indexesAfterLoad", the secondary indexes are created after the data has been loaded.
+     * Except in streaming mode, the rows are written in primary key order.
+     * With "--normalizedProperties", the properties are written to "propertyValues", with the names
+     * replaced by ids from the "propertyNameDict" table and an additional numeric value column.
+     */
     public static void main(String[] args) throws Exception {
+        if (Arrays.asList(args).contains("--streaming")) {
+            final String timeoutHours = option(args, "--sessionTimeoutHours=", null);
+            exportStreaming(
+                    args,
+                    Integer.parseInt(option(args, "--maxOpenSessions=", "10000")),
+                    timeoutHours == null ? null : Duration.ofHours(Long.parseLong(timeoutHours)));
+            return;
+        }
+
         final Events events = Events.loadDefault();
         events.discardVersionsWithOldKeys();
         events.normalizeUsers();
@@ -27,42 +74,251 @@ public class CortToSqlFull {
 
         final List<Events> sessions = events.splitIntoSessions();
 
-        try (SqlWriter<Events> ws = new SqlWriter<>(new File("sessions.sql"), "sessions");
-                SqlWriter<Event> we = new SqlWriter<>(new File("events.sql"), "events");
-                SqlWriter<EventProperty> wp = new SqlWriter<>(new File("properties.sql"), "properties")) {
-            ws.addColumn("key", "VARCHAR(256)", e -> e.getExample().getTicketKey());
-            ws.addColumn("type", "VARCHAR(256)", e -> e.getExample().getSessionType());
-            ws.addColumn("round", "INTEGER", e -> e.getCorrectedRound());
-            ws.addKeyColumn("session", "VARCHAR(256)", e -> e.getExample().getSessionId());
-            ws.addKeyColumn("user", "VARCHAR(256)", e -> e.getExample().getUser());
-            ws.addColumn("startTime", "DATETIME", e -> e.minTime());
-            ws.addColumn("endTime", "DATETIME", e -> e.maxTime());
-
-            we.addKeyColumn("user", "VARCHAR(256)", e -> e.getUser());
-            we.addKeyColumn("time", "BIGINT", e -> e.getTimestamp().toEpochMilli());
-            we.addColumn("session", "VARCHAR(256)", e -> e.getSessionId());
-            we.addColumn("tool", "VARCHAR(256)", e -> e.getTool());
-            we.addColumn("eventType", "VARCHAR(256)", e -> e.getDataType());
-
-            wp.addKeyColumn("user", "VARCHAR(256)", e -> e.event.getUser());
-            wp.addKeyColumn("time", "BIGINT", e -> e.event.getTimestamp().toEpochMilli());
-            wp.addKeyColumn("name", "VARCHAR(256)", e -> e.name);
-            wp.addColumn("value", "VARCHAR(256)", e -> e.event.getProperty(e.name).get());
-
-            for (final Events eventsForSession : sessions) {
-                ws.writeRow(eventsForSession);
-
-                for (final Event e : eventsForSession) {
-                    we.writeRow(e);
-
-                    for (final String name : e.getProperties().keySet()) {
-                        wp.writeRow(new EventProperty(e, name));
-                    }
+        final List<ParallelGzipOutputStream> compressedOutputs = new ArrayList<>();
+        final PropertyNameDictionary propertyNames = new PropertyNameDictionary();
+        if (isNormalizedProperties(args)) {
+            //register the names in sorted order, so that the ids have the same order as the names
+            final Set<String> sortedNames = new TreeSet<>(KEY_ORDER);
+            for (final Event e : events) {
+                sortedNames.addAll(e.getProperties().keySet());
+            }
+            for (final String name : sortedNames) {
+                propertyNames.getId(name);
+            }
+        }
+
+        try (SqlWriter<SessionSummary> ws = createWriter(args, compressedOutputs, "sessions");
+                SqlWriter<SessionMetrics> wx = createWriter(args, compressedOutputs, "sessions_ext");
+                SqlWriter<Event> we = createWriter(args, compressedOutputs, "events");
+                SqlWriter<EventProperty> wp = createPropertyWriter(args, compressedOutputs, propertyNames)) {
+            addSessionColumns(ws);
+            addSessionExtColumns(wx);
+            addEventColumns(we);
+
+            //the rows are written in primary key order, so that the inserts are sequential
+            final List<Events> sessionsInKeyOrder = new ArrayList<>(sessions);
+            sessionsInKeyOrder.sort(Comparator
+                    .comparing((Events s) -> s.getSummary().getFirstEvent().getSessionId(), KEY_ORDER)
+                    .thenComparing(s -> s.getSummary().getFirstEvent().getUser(), KEY_ORDER));
+            for (final Events eventsForSession : sessionsInKeyOrder) {
+                ws.writeRow(eventsForSession.getSummary());
+                wx.writeRow(SessionMetrics.of(eventsForSession));
+            }
+
+            final List<Event> eventsInKeyOrder = new ArrayList<>(events.size());
+            for (final Event e : events) {
+                eventsInKeyOrder.add(e);
+            }
+            eventsInKeyOrder.sort(Comparator.comparing(Event::getUser, KEY_ORDER).thenComparing(Event::getTimestamp));
+            for (final Event e : eventsInKeyOrder) {
+                we.writeRow(e);
+
+                final String[] names = e.getProperties().keySet().toArray(new String[e.getProperties().size()]);
+                Arrays.sort(names, KEY_ORDER);
+                for (final String name : names) {
+                    wp.writeRow(new EventProperty(e, name));
                 }
             }
         }
+        writePropertyNameDictionary(args, compressedOutputs, propertyNames);
+        printCompressionStatistics(compressedOutputs);
 
         System.out.println("Records written, session count=" + sessions.size());
     }
 
+    private static void printCompressionStatistics(List<ParallelGzipOutputStream> compressedOutputs) {
+        for (final ParallelGzipOutputStream out : compressedOutputs) {
+            System.out.println(out.getStatistics());
+        }
+    }
+
+    private static void exportStreaming(String[] args, int maxOpenSessions, Duration sessionTimeout) throws Exception {
+        final List<ParallelGzipOutputStream> compressedOutputs = new ArrayList<>();
+        final PropertyNameDictionary propertyNames = new PropertyNameDictionary();
+        try (SqlWriter<SessionSummary> ws = createWriter(args, compressedOutputs, "sessions");
+                SqlWriter<SessionMetrics> wx = createWriter(args, compressedOutputs, "sessions_ext");
+                SqlWriter<Event> we = createWriter(args, compressedOutputs, "events");
+                SqlWriter<EventProperty> wp = createPropertyWriter(args, compressedOutputs, propertyNames)) {
+            addSessionColumns(ws);
+            addSessionExtColumns(wx);
+            addEventColumns(we);
+
+            final StreamingExport export = new StreamingExport(ws, wx, we, wp, maxOpenSessions, sessionTimeout);
+            try {
+                Events.forEachDefault(export);
+            } catch (final UncheckedIOException e) {
+                throw e.getCause();
+            }
+            export.finish();
+
+            System.out.println("Records written, session count=" + export.getSessionCount()
+                + ", max open sessions=" + export.getMaxOpenSessionCount());
+        }
+        writePropertyNameDictionary(args, compressedOutputs, propertyNames);
+        printCompressionStatistics(compressedOutputs);
+    }
+
+    /**
+     * Creates the writer for the properties, either for the "properties" table with the names as strings,
+     * or, with "--normalizedProperties", for the "propertyValues" table that references the names by id.
+     */
+    private static SqlWriter<EventProperty> createPropertyWriter(
+            String[] args, List<ParallelGzipOutputStream> compressedOutputs, PropertyNameDictionary propertyNames)
+            throws IOException {
+        if (!isNormalizedProperties(args)) {
+            final SqlWriter<EventProperty> wp = createWriter(args, compressedOutputs, "properties");
+            addPropertyColumns(wp);
+            return wp;
+        }
+        final SqlWriter<EventProperty> wp = createWriter(args, compressedOutputs, "propertyValues");
+        wp.addKeyColumn("user", "VARCHAR(256)", e -> e.event.getUser());
+        wp.addKeyColumn("time", "BIGINT", e -> e.event.getTimestamp().toEpochMilli());
+        wp.addKeyColumn("nameId", "INTEGER", e -> propertyNames.getId(e.name));
+        wp.addColumn("value", "VARCHAR(256)", e -> e.event.getProperty(e.name).get());
+        wp.addColumn("numValue", "BIGINT", e -> toNumber(e.event.getProperty(e.name).get()));
+        wp.addIndex("propertyValues_name", "nameId", "numValue");
+        return wp;
+    }
+
+    private static boolean isNormalizedProperties(String[] args) {
+        return Arrays.asList(args).contains("--normalizedProperties");
+    }
+
+    private static void writePropertyNameDictionary(
+            String[] args, List<ParallelGzipOutputStream> compressedOutputs, PropertyNameDictionary propertyNames)
+            throws IOException {
+        if (!isNormalizedProperties(args)) {
+            return;
+        }
+        try (SqlWriter<Map.Entry<String, Integer>> wn = createWriter(args, compressedOutputs, "propertyNameDict")) {
+            wn.addKeyColumn("id", "INTEGER", e -> e.getValue());
+            wn.addColumn("name", "VARCHAR(256)", e -> e.getKey());
+            wn.addIndex("propertyNameDict_name", "name");
+            propertyNames.writeTo(wn);
+        }
+        System.out.println("Property names: " + propertyNames.size());
+    }
+
+    /**
+     * Returns the value as a number if it is an integer, otherwise null. Like CAST(value AS SIGNED) in MySQL,
+     * a leading "+" or "-" and leading zeros are allowed. Unlike the cast, values with further characters
+     * (e.g. spaces or a fraction) and values outside the range of BIGINT result in null instead of a truncated
+     * or clamped number.
+     */
+    private static Long toNumber(String value) {
+        final int length = value.length();
+        int i = length > 0 && (value.charAt(0) == '-' || value.charAt(0) == '+') ? 1 : 0;
+        if (i == length) {
+            return null;
+        }
+        for (; i < length; i++) {
+            final char ch = value.charAt(i);
+            if (ch < '0' || ch > '9') {
+                return null;
+            }
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (final NumberFormatException e) {
+            //outside the range of BIGINT
+            return null;
+        }
+    }
+
+    /**
+     * Creates the writer for a table as selected by the arguments. With "--gzip", the compressed stream is
+     * added to compressedOutputs, so that the caller can print its statistics after the export.
+     */
+    private static <T> SqlWriter<T> createWriter(
+            String[] args, List<ParallelGzipOutputStream> compressedOutputs, String tablename) throws IOException {
+        final int batchSize = Integer.parseInt(option(args, "--batchSize=", "1000"));
+        final String jdbcUrl = option(args, "--jdbc=", null);
+        final TableSink sink;
+        if (jdbcUrl != null) {
+            sink = new JdbcSink(jdbcUrl, batchSize, Integer.parseInt(option(args, "--commitInterval=", "50000")));
+        } else if (Arrays.asList(args).contains("--tsv")) {
+            sink = new DelimitedFileSink(new File(tablename + ".ddl.sql"), new File(tablename + ".tsv"));
+        } else if (Arrays.asList(args).contains("--gzip")) {
+            final ParallelGzipOutputStream out = new ParallelGzipOutputStream(new File(tablename + ".sql.gz"));
+            compressedOutputs.add(out);
+            sink = new SqlScriptSink(out, batchSize);
+        } else {
+            sink = new SqlScriptSink(new File(tablename + ".sql"), batchSize);
+        }
+        final SqlWriter<T> writer = new SqlWriter<>(sink, tablename);
+        writer.setIndexesAfterLoad(Arrays.asList(args).contains("--indexesAfterLoad"));
+        if (Arrays.asList(args).contains("--pipelined")) {
+            writer.writeInBackground(PIPELINE_CHUNKS);
+        }
+        return writer;
+    }
+
+    private static String option(String[] args, String prefix, String defaultValue) {
+        for (final String arg : args) {
+            if (arg.startsWith(prefix)) {
+                return arg.substring(prefix.length());
+            }
+        }
+        return defaultValue;
+    }
+
+    private static void addSessionColumns(SqlWriter<SessionSummary> ws) {
+        ws.addColumn("key", "VARCHAR(256)", s -> s.getFirstEvent().getTicketKey());
+        ws.addColumn("type", "VARCHAR(256)", s -> s.getFirstEvent().getSessionType());
+        ws.addColumn("round", "INTEGER", s -> s.getCorrectedRound());
+        ws.addKeyColumn("session", "VARCHAR(256)", s -> s.getFirstEvent().getSessionId());
+        ws.addKeyColumn("user", "VARCHAR(256)", s -> s.getFirstEvent().getUser());
+        ws.addColumn("startTime", "DATETIME", s -> s.getMinTime());
+        ws.addColumn("endTime", "DATETIME", s -> s.getMaxTime());
+        ws.addIndex("sessions_review", "key", "round", "type");
+    }
+
+    /**
+     * The session columns plus the metrics that were formerly determined by the "sessionsExt" view.
+     */
+    private static void addSessionExtColumns(SqlWriter<SessionMetrics> wx) {
+        wx.addColumn("key", "VARCHAR(256)", m -> m.getSummary().getFirstEvent().getTicketKey());
+        wx.addColumn("type", "VARCHAR(256)", m -> m.getSummary().getFirstEvent().getSessionType());
+        wx.addColumn("round", "INTEGER", m -> m.getSummary().getCorrectedRound());
+        wx.addKeyColumn("session", "VARCHAR(256)", m -> m.getSummary().getFirstEvent().getSessionId());
+        wx.addKeyColumn("user", "VARCHAR(256)", m -> m.getSummary().getFirstEvent().getUser());
+        wx.addColumn("startTime", "DATETIME", m -> m.getSummary().getMinTime());
+        wx.addColumn("endTime", "DATETIME", m -> m.getSummary().getMaxTime());
+        wx.addColumn("duration", "BIGINT", m -> m.getDuration());
+        wx.addColumn("createdRemarkCount", "INTEGER", m -> m.getCreatedRemarkCount());
+        wx.addColumn("tool", "VARCHAR(256)", m -> m.getSummary().getToolFromFirstEvent());
+        wx.addColumn("endType", "VARCHAR(256)", m -> m.getEndType());
+        wx.addColumn("launchCount", "INTEGER", m -> m.getLaunchCount());
+        wx.addColumn("importFilterSize", "BIGINT", m -> m.getImportFilterSize());
+        wx.addColumn("whitespaceFilterSize", "BIGINT", m -> m.getWhitespaceFilterSize());
+        wx.addColumn("tourCount", "BIGINT", m -> m.getTourCount());
+        wx.addColumn("tourCountOriginal", "BIGINT", m -> m.getTourCountOriginal());
+        wx.addColumn("stopCountRel", "BIGINT", m -> m.getStopCountRel());
+        wx.addColumn("stopCountOriginal", "BIGINT", m -> m.getStopCountOriginal());
+        wx.addColumn("addedLinesRel", "BIGINT", m -> m.getAddedLinesRel());
+        wx.addColumn("addedLinesOriginal", "BIGINT", m -> m.getAddedLinesOriginal());
+        wx.addColumn("removedLinesRel", "BIGINT", m -> m.getRemovedLinesRel());
+        wx.addColumn("removedLinesOriginal", "BIGINT", m -> m.getRemovedLinesOriginal());
+        //with utf8mb4, a further VARCHAR(256) column would exceed the InnoDB limit of 3072 bytes per key
+        wx.addIndex("sessions_ext_review", "type", "key", "round");
+    }
+
+    private static void addEventColumns(SqlWriter<Event> we) {
+        we.addKeyColumn("user", "VARCHAR(256)", e -> e.getUser());
+        we.addKeyColumn("time", "BIGINT", e -> e.getTimestamp().toEpochMilli());
+        we.addColumn("session", "VARCHAR(256)", e -> e.getSessionId());
+        we.addColumn("tool", "VARCHAR(256)", e -> e.getTool());
+        we.addColumn("eventType", "VARCHAR(256)", e -> e.getDataType());
+        we.addIndex("events_eventType", "eventType");
+        we.addIndex("events_session", "user", "session", "time");
+    }
+
+    private static void addPropertyColumns(SqlWriter<EventProperty> wp) {
+        wp.addKeyColumn("user", "VARCHAR(256)", e -> e.event.getUser());
+        wp.addKeyColumn("time", "BIGINT", e -> e.event.getTimestamp().toEpochMilli());
+        wp.addKeyColumn("name", "VARCHAR(256)", e -> e.name);
+        wp.addColumn("value", "VARCHAR(256)", e -> e.event.getProperty(e.name).get());
+        wp.addIndex("properties_name", "name");
+    }
+
 }
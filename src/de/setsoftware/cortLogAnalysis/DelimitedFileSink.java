@@ -0,0 +1,107 @@
+package de.setsoftware.cortLogAnalysis;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Writes the rows into a tab separated data file for bulk loading, and the table definition together with the
+ * matching LOAD DATA statement into a separate DDL file. The data file uses the default escaping of
+ * MySQL's LOAD DATA INFILE (backslash escapes, \N for NULL).
+ */
+public class DelimitedFileSink implements TableSink {
+
+    private final File ddlFile;
+    private final File dataFile;
+    private final Writer data;
+    private final StringBuilder rowBuffer = new StringBuilder(256);
+    private char[] charBuffer = new char[256];
+
+    public DelimitedFileSink(final File ddlFile, final File dataFile) throws IOException {
+        this.ddlFile = ddlFile;
+        this.dataFile = dataFile;
+        this.data = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(dataFile), StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    @Override
+    public void start(final TableDefinition table) throws IOException {
+        final String tablename = table.getName();
+        final StringBuilder ddl = new StringBuilder(SqlScriptSink.createTableStatements(table));
+        ddl.append("LOAD DATA LOCAL INFILE '").append(this.dataFile.getName().replace("'", "\\'"))
+            .append("' INTO TABLE `").append(tablename).append("`")
+            .append(" CHARACTER SET utf8mb4")
+            .append(" FIELDS TERMINATED BY '\\t' ESCAPED BY '\\\\'")
+            .append(" LINES TERMINATED BY '\\n';\n");
+        if (table.isIndexesAfterLoad()) {
+            ddl.append(SqlScriptSink.createIndexStatements(table));
+        }
+        try (Writer w = new OutputStreamWriter(new FileOutputStream(this.ddlFile), StandardCharsets.UTF_8)) {
+            w.write(ddl.toString());
+        }
+    }
+
+    @Override
+    public void writeRow(final Object[] values) throws IOException {
+        final StringBuilder b = this.rowBuffer;
+        b.setLength(0);
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                b.append('\t');
+            }
+            appendField(b, values[i]);
+        }
+        b.append('\n');
+        if (this.charBuffer.length < b.length()) {
+            this.charBuffer = new char[Math.max(b.length(), this.charBuffer.length * 2)];
+        }
+        b.getChars(0, b.length(), this.charBuffer, 0);
+        this.data.write(this.charBuffer, 0, b.length());
+    }
+
+    private static void appendField(final StringBuilder b, final Object o) {
+        if (o == null) {
+            b.append("\\N");
+        } else if (o instanceof Instant) {
+            SqlScriptSink.appendTimestamp(b, (Instant) o);
+        } else if (o instanceof Long || o instanceof Integer) {
+            b.append(((Number) o).longValue());
+        } else {
+            final String s = o.toString();
+            for (int i = 0; i < s.length(); i++) {
+                final char ch = s.charAt(i);
+                switch (ch) {
+                case '\\':
+                    b.append("\\\\");
+                    break;
+                case '\t':
+                    b.append("\\t");
+                    break;
+                case '\n':
+                    b.append("\\n");
+                    break;
+                case '\r':
+                    b.append("\\r");
+                    break;
+                case '\0':
+                    b.append("\\0");
+                    break;
+                default:
+                    b.append(ch);
+                    break;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.data.close();
+    }
+
+}
@@ -0,0 +1,33 @@
+package de.setsoftware.cortLogAnalysis;
+
+import de.setsoftware.cortLogAnalysis.model.Events;
+import de.setsoftware.cortLogAnalysis.model.Symbols;
+
+/**
+ * Loads the full corpus and prints how much heap it occupies, and the size and build time of its index.
+ */
+public class HeapUsage {
+
+    public static void main(final String[] args) throws Exception {
+        final long before = usedHeapAfterGc();
+        final Events events = Events.loadDefault();
+        final long after = usedHeapAfterGc();
+
+        final long bytes = after - before;
+        System.out.println("Events: " + events.size());
+        System.out.println("Distinct symbols: " + Symbols.size());
+        System.out.println("Heap for events: " + bytes / (1024 * 1024) + " MB");
+        System.out.println("Bytes per event: " + bytes / Math.max(events.size(), 1));
+        System.out.println(events.getIndex());
+    }
+
+    private static long usedHeapAfterGc() throws InterruptedException {
+        final Runtime r = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return r.totalMemory() - r.freeMemory();
+    }
+
+}
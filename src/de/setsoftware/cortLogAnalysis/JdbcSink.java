@@ -0,0 +1,185 @@
+package de.setsoftware.cortLogAnalysis;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Writes the rows directly into a database, using batched prepared statements. Every sink uses
+ * its own connection, so that it can be used independently of the others. Works with embedded
+ * databases like H2 or HSQLDB, as long as the driver is on the classpath.
+ */
+public class JdbcSink implements TableSink {
+
+    private final Connection connection;
+    private final int batchSize;
+    private final int commitInterval;
+    private TableDefinition table;
+    private PreparedStatement insert;
+    private int[] sqlTypes;
+    private int rowsInBatch;
+    private int rowsSinceCommit;
+
+    /**
+     * Creates a sink for the database with the given JDBC URL. The rows are sent in batches of the given size,
+     * and a commit is done after the given number of rows.
+     */
+    public JdbcSink(final String url, final int batchSize, final int commitInterval) throws IOException {
+        try {
+            this.connection = DriverManager.getConnection(url);
+            this.connection.setAutoCommit(false);
+        } catch (final SQLException e) {
+            throw new IOException("could not connect to " + url, e);
+        }
+        this.batchSize = batchSize;
+        this.commitInterval = commitInterval;
+    }
+
+    @Override
+    public void start(final TableDefinition table) throws IOException {
+        this.table = table;
+        final List<String> names = table.getColumnNames();
+        this.sqlTypes = new int[names.size()];
+        final StringBuilder createTable = new StringBuilder();
+        createTable.append("CREATE TABLE ").append(quote(table.getName())).append(" (");
+        final StringBuilder insertSql = new StringBuilder();
+        insertSql.append("INSERT INTO ").append(quote(table.getName())).append(" VALUES(");
+        for (int i = 0; i < names.size(); i++) {
+            final String type = mapType(table.getColumnTypes().get(i));
+            this.sqlTypes[i] = toSqlType(type);
+            createTable.append(quote(names.get(i))).append(' ').append(type).append(",");
+            insertSql.append(i == 0 ? "?" : ",?");
+        }
+        createTable.append("PRIMARY KEY (");
+        boolean first = true;
+        for (final String name : table.getPrimaryKey()) {
+            if (first) {
+                first = false;
+            } else {
+                createTable.append(",");
+            }
+            createTable.append(quote(name));
+        }
+        createTable.append("))");
+        insertSql.append(")");
+
+        try (Statement stmt = this.connection.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS " + quote(table.getName()));
+            stmt.execute(createTable.toString());
+            if (!table.isIndexesAfterLoad()) {
+                this.createIndexes(stmt);
+            }
+            this.connection.commit();
+            this.insert = this.connection.prepareStatement(insertSql.toString());
+        } catch (final SQLException e) {
+            throw new IOException("could not create table " + table.getName(), e);
+        }
+    }
+
+    private void createIndexes(final Statement stmt) throws SQLException {
+        for (final TableDefinition.Index index : this.table.getIndexes()) {
+            final StringBuilder sql = new StringBuilder();
+            sql.append("CREATE INDEX ").append(quote(index.getName()))
+                .append(" ON ").append(quote(this.table.getName())).append(" (");
+            for (int i = 0; i < index.getColumns().size(); i++) {
+                sql.append(i == 0 ? "" : ",").append(quote(index.getColumns().get(i)));
+            }
+            sql.append(")");
+            stmt.execute(sql.toString());
+        }
+    }
+
+    private static String quote(final String identifier) {
+        return "\"" + identifier + "\"";
+    }
+
+    private static String mapType(final String type) {
+        //DATETIME is MySQL specific
+        return type.equals("DATETIME") ? "TIMESTAMP" : type;
+    }
+
+    private static int toSqlType(final String type) {
+        if (type.equals("BIGINT")) {
+            return Types.BIGINT;
+        } else if (type.equals("INTEGER")) {
+            return Types.INTEGER;
+        } else if (type.equals("TIMESTAMP")) {
+            return Types.TIMESTAMP;
+        } else {
+            return Types.VARCHAR;
+        }
+    }
+
+    @Override
+    public void writeRow(final Object[] values) throws IOException {
+        try {
+            for (int i = 0; i < values.length; i++) {
+                this.setParameter(i + 1, this.sqlTypes[i], values[i]);
+            }
+            this.insert.addBatch();
+            this.rowsInBatch++;
+            this.rowsSinceCommit++;
+            if (this.rowsInBatch >= this.batchSize) {
+                this.executeBatch();
+            }
+            if (this.rowsSinceCommit >= this.commitInterval) {
+                this.executeBatch();
+                this.connection.commit();
+                this.rowsSinceCommit = 0;
+            }
+        } catch (final SQLException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private void setParameter(final int index, final int sqlType, final Object value) throws SQLException {
+        if (value == null) {
+            this.insert.setNull(index, sqlType);
+        } else if (value instanceof Instant) {
+            this.insert.setTimestamp(index, Timestamp.from((Instant) value));
+        } else if (value instanceof Long || value instanceof Integer) {
+            if (sqlType == Types.VARCHAR) {
+                this.insert.setString(index, value.toString());
+            } else {
+                this.insert.setLong(index, ((Number) value).longValue());
+            }
+        } else {
+            this.insert.setString(index, value.toString());
+        }
+    }
+
+    private void executeBatch() throws SQLException {
+        if (this.rowsInBatch > 0) {
+            this.insert.executeBatch();
+            this.rowsInBatch = 0;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (this.insert != null) {
+                this.executeBatch();
+                this.insert.close();
+            }
+            this.connection.commit();
+            if (this.table != null && this.table.isIndexesAfterLoad()) {
+                try (Statement stmt = this.connection.createStatement()) {
+                    this.createIndexes(stmt);
+                }
+                this.connection.commit();
+            }
+            this.connection.close();
+        } catch (final SQLException e) {
+            throw new IOException(e);
+        }
+    }
+
+}
@@ -0,0 +1,189 @@
+package de.setsoftware.cortLogAnalysis;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes gzip compressed data, with the compression done on worker threads. The data is split into blocks
+ * that are compressed independently and written as consecutive gzip members, which is a valid gzip
+ * file that can be read with gunzip, zcat or {@link java.util.zip.GZIPInputStream}. Only a limited number
+ * of blocks is in progress at any time; when this limit is reached, the writing thread waits for the
+ * oldest block. The blocks of all streams are compressed by one shared pool of daemon threads.
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+
+    private static final int THREAD_COUNT = Runtime.getRuntime().availableProcessors();
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(THREAD_COUNT, r -> {
+        final Thread t = new Thread(r, "gzip");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final String name;
+    private final OutputStream out;
+    private final int blockSize;
+    private final int maxPendingBlocks;
+    private final ArrayDeque<Future<byte[]>> pending = new ArrayDeque<>();
+    private byte[] block;
+    private int blockFill;
+    private long uncompressedSize;
+    private long compressedSize;
+    private final AtomicLong compressionTime = new AtomicLong();
+    private boolean closed;
+
+    public ParallelGzipOutputStream(final File file) throws IOException {
+        this(file.getName(), new FileOutputStream(file), DEFAULT_BLOCK_SIZE);
+    }
+
+    public ParallelGzipOutputStream(final String name, final OutputStream out, final int blockSize) {
+        this.name = name;
+        this.out = new BufferedOutputStream(out, 1 << 16);
+        this.blockSize = blockSize;
+        this.maxPendingBlocks = 2 * THREAD_COUNT;
+        this.block = new byte[blockSize];
+    }
+
+    /**
+     * Opens a stream to write to the given file, compressed when the file name ends with ".gz".
+     */
+    public static OutputStream open(final File file) throws IOException {
+        if (file.getName().endsWith(".gz")) {
+            return new ParallelGzipOutputStream(file);
+        } else {
+            return new FileOutputStream(file);
+        }
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        this.block[this.blockFill++] = (byte) b;
+        if (this.blockFill == this.blockSize) {
+            this.submitBlock();
+        }
+    }
+
+    @Override
+    public void write(final byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            final int count = Math.min(len, this.blockSize - this.blockFill);
+            System.arraycopy(b, off, this.block, this.blockFill, count);
+            this.blockFill += count;
+            off += count;
+            len -= count;
+            if (this.blockFill == this.blockSize) {
+                this.submitBlock();
+            }
+        }
+    }
+
+    private void submitBlock() throws IOException {
+        if (this.blockFill == 0) {
+            return;
+        }
+        final byte[] data = this.block;
+        final int length = this.blockFill;
+        this.uncompressedSize += length;
+        this.pending.add(EXECUTOR.submit(() -> this.compress(data, length)));
+        this.block = new byte[this.blockSize];
+        this.blockFill = 0;
+        while (this.pending.size() >= this.maxPendingBlocks) {
+            this.writeOldestBlock();
+        }
+    }
+
+    private byte[] compress(final byte[] data, final int length) throws IOException {
+        final long startTime = System.nanoTime();
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream(length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(buffer, 1 << 16)) {
+            gzip.write(data, 0, length);
+        }
+        this.compressionTime.addAndGet(System.nanoTime() - startTime);
+        return buffer.toByteArray();
+    }
+
+    private void writeOldestBlock() throws IOException {
+        final byte[] compressed;
+        try {
+            compressed = this.pending.remove().get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while compressing " + this.name);
+        } catch (final ExecutionException e) {
+            throw new IOException("compression of " + this.name + " failed", e.getCause());
+        }
+        this.out.write(compressed);
+        this.compressedSize += compressed.length;
+    }
+
+    /**
+     * Does not force the current block to be compressed, because smaller blocks compress worse.
+     */
+    @Override
+    public void flush() throws IOException {
+        this.out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        try {
+            this.submitBlock();
+            while (!this.pending.isEmpty()) {
+                this.writeOldestBlock();
+            }
+        } finally {
+            //the blocks that are not written any more after an error
+            for (final Future<byte[]> f : this.pending) {
+                f.cancel(false);
+            }
+            this.pending.clear();
+            this.out.close();
+            this.block = null;
+        }
+    }
+
+    /**
+     * Returns a line with the sizes and the compression speed, e.g. for a progress report after closing.
+     */
+    public String getStatistics() {
+        return String.format("%s: %.1f MB compressed to %.1f MB (%.0f%%), %.1f MB/s per thread",
+                this.name,
+                this.uncompressedSize / 1e6,
+                this.compressedSize / 1e6,
+                this.compressedSize * 100.0 / Math.max(this.uncompressedSize, 1),
+                this.uncompressedSize * 1e3 / Math.max(this.compressionTime.get(), 1));
+    }
+
+    public long getUncompressedSize() {
+        return this.uncompressedSize;
+    }
+
+    public long getCompressedSize() {
+        return this.compressedSize;
+    }
+
+    /**
+     * Returns the time spent compressing, summed over all threads, in nanoseconds.
+     */
+    public long getCompressionTime() {
+        return this.compressionTime.get();
+    }
+
+}
@@ -0,0 +1,47 @@
+package de.setsoftware.cortLogAnalysis;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Assigns int ids to the property names for the normalized properties table. The ids are assigned in
+ * the order of registration, starting with 1.
+ */
+final class PropertyNameDictionary {
+
+    private final Map<String, Integer> ids = new LinkedHashMap<>();
+
+    /**
+     * Returns the id for the given name, and assigns a new id if there is none yet.
+     * Can be called from the writer thread of the properties table while names are registered.
+     */
+    public synchronized int getId(final String name) {
+        Integer id = this.ids.get(name);
+        if (id == null) {
+            id = this.ids.size() + 1;
+            this.ids.put(name, id);
+        }
+        return id;
+    }
+
+    /**
+     * Writes the dictionary ordered by id.
+     */
+    public void writeTo(final SqlWriter<Map.Entry<String, Integer>> writer) throws IOException {
+        final List<Map.Entry<String, Integer>> entries;
+        synchronized (this) {
+            entries = new ArrayList<>(this.ids.entrySet());
+        }
+        for (final Map.Entry<String, Integer> e : entries) {
+            writer.writeRow(e);
+        }
+    }
+
+    public synchronized int size() {
+        return this.ids.size();
+    }
+
+}
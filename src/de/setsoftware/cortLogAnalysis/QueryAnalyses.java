@@ -0,0 +1,118 @@
+package de.setsoftware.cortLogAnalysis;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import de.setsoftware.cortLogAnalysis.model.Event;
+import de.setsoftware.cortLogAnalysis.model.EventTypes;
+import de.setsoftware.cortLogAnalysis.model.Events;
+import de.setsoftware.cortLogAnalysis.query.Aggregates;
+import de.setsoftware.cortLogAnalysis.query.EventConditions;
+import de.setsoftware.cortLogAnalysis.query.Query;
+import de.setsoftware.cortLogAnalysis.query.ResultTable;
+
+/**
+ * Computes the data of the views "filterEffectiveness", "sessionsExt" and "reviewsCort" from views.sql
+ * directly on the loaded events, without exporting to a database. The results are written to CSV files
+ * with the names of the views.
+ */
+public class QueryAnalyses {
+
+    /**
+     * With "--sequential", the queries are not executed in parallel.
+     */
+    public static void main(final String[] args) throws Exception {
+        final boolean parallel = !Arrays.asList(args).contains("--sequential");
+        final Events events = Events.loadDefault();
+        events.discardVersionsWithOldKeys();
+        events.normalizeUsers();
+
+        System.out.println("Events loaded");
+
+        long startTime = System.nanoTime();
+        final ResultTable filterEffectiveness = Query.from(events)
+            .where(EventConditions.dataType(EventTypes.RELEVANCE_FILTER_RESULT))
+            .where(EventConditions.hasProperty("description"))
+            .where(EventConditions.hasProperty("size"))
+            //one row per event, the time and user identify the event
+            .groupBy("time", e -> e.getTimestamp().toEpochMilli())
+            .groupBy("user", Event::getUser)
+            .groupBy("session", Event::getSessionId)
+            .groupBy("filterName", e -> e.getProperties().get("description"))
+            .aggregate("size", Aggregates.max(QueryAnalyses::filterSize))
+            .execute(parallel);
+        write(filterEffectiveness, "filterEffectiveness", startTime);
+
+        startTime = System.nanoTime();
+        final List<Events> sessions = events.splitIntoSessions(parallel);
+        final List<SessionMetrics> metrics = (parallel ? sessions.parallelStream() : sessions.stream())
+            .map(SessionMetrics::of)
+            .collect(Collectors.toList());
+        final ResultTable sessionsExt = Query.from(metrics)
+            .groupBy("key", m -> m.getSummary().getFirstEvent().getTicketKey())
+            .groupBy("type", m -> m.getSummary().getFirstEvent().getSessionType())
+            .groupBy("round", m -> m.getSummary().getCorrectedRound())
+            .groupBy("session", m -> m.getSummary().getFirstEvent().getSessionId())
+            .groupBy("user", m -> m.getSummary().getFirstEvent().getUser())
+            .aggregate("startTime", Aggregates.min(m -> m.getSummary().getMinTime()))
+            .aggregate("endTime", Aggregates.max(m -> m.getSummary().getMaxTime()))
+            .aggregate("duration", Aggregates.sum(SessionMetrics::getDuration))
+            .aggregate("createdRemarkCount", Aggregates.sum(SessionMetrics::getCreatedRemarkCount))
+            .aggregate("tool", Aggregates.min(m -> m.getSummary().getToolFromFirstEvent()))
+            .aggregate("endType", Aggregates.max(SessionMetrics::getEndType))
+            .aggregate("launchCount", Aggregates.sum(SessionMetrics::getLaunchCount))
+            .aggregate("importFilterSize", Aggregates.max(SessionMetrics::getImportFilterSize))
+            .aggregate("whitespaceFilterSize", Aggregates.max(SessionMetrics::getWhitespaceFilterSize))
+            .aggregate("tourCount", Aggregates.max(SessionMetrics::getTourCount))
+            .aggregate("tourCountOriginal", Aggregates.max(SessionMetrics::getTourCountOriginal))
+            .aggregate("stopCountRel", Aggregates.max(SessionMetrics::getStopCountRel))
+            .aggregate("stopCountOriginal", Aggregates.max(SessionMetrics::getStopCountOriginal))
+            .aggregate("addedLinesRel", Aggregates.max(SessionMetrics::getAddedLinesRel))
+            .aggregate("addedLinesOriginal", Aggregates.max(SessionMetrics::getAddedLinesOriginal))
+            .aggregate("removedLinesRel", Aggregates.max(SessionMetrics::getRemovedLinesRel))
+            .aggregate("removedLinesOriginal", Aggregates.max(SessionMetrics::getRemovedLinesOriginal))
+            .execute(parallel);
+        write(sessionsExt, "sessionsExt", startTime);
+
+        startTime = System.nanoTime();
+        final ResultTable reviewsCort = Query.from(metrics)
+            .where(m -> "R".equals(m.getSummary().getFirstEvent().getSessionType()))
+            .groupBy("key", m -> m.getSummary().getFirstEvent().getTicketKey())
+            .groupBy("round", m -> m.getSummary().getCorrectedRound())
+            .groupBy("user", m -> m.getSummary().getFirstEvent().getUser())
+            .aggregate("startTime", Aggregates.min(m -> m.getSummary().getMinTime()))
+            .aggregate("endTime", Aggregates.max(m -> m.getSummary().getMaxTime()))
+            .aggregate("duration", Aggregates.sum(SessionMetrics::getDuration))
+            .aggregate("createdRemarkCount", Aggregates.sum(SessionMetrics::getCreatedRemarkCount))
+            .aggregate("launchCount", Aggregates.sum(SessionMetrics::getLaunchCount))
+            .aggregate("tourCountOriginal", Aggregates.max(SessionMetrics::getTourCountOriginal))
+            .aggregate("stopCountOriginal", Aggregates.max(SessionMetrics::getStopCountOriginal))
+            .aggregate("addedLinesOriginal", Aggregates.max(SessionMetrics::getAddedLinesOriginal))
+            .aggregate("removedLinesOriginal", Aggregates.max(SessionMetrics::getRemovedLinesOriginal))
+            .aggregate("tourCount", Aggregates.max(SessionMetrics::getTourCount))
+            .aggregate("stopCountRel", Aggregates.max(SessionMetrics::getStopCountRel))
+            .aggregate("addedLinesRel", Aggregates.max(SessionMetrics::getAddedLinesRel))
+            .aggregate("removedLinesRel", Aggregates.max(SessionMetrics::getRemovedLinesRel))
+            .aggregate("sessionCount", Aggregates.count())
+            .derive("reviewRate", r -> Query.ratio(r.getNumber("addedLinesRel"), r.getNumber("duration"), 3600))
+            .derive("reviewRateRange",
+                    r -> Query.floorOfRatio(r.getNumber("addedLinesRel"), r.getNumber("duration"), 36))
+            .derive("reviewEfficiency",
+                    r -> Query.ratio(r.getNumber("createdRemarkCount"), r.getNumber("duration"), 3600))
+            .execute(parallel);
+        write(reviewsCort, "reviewsCort", startTime);
+    }
+
+    private static Long filterSize(final Event e) {
+        return SessionMetrics.castToSigned(e.getProperties().get("size"));
+    }
+
+    private static void write(final ResultTable table, final String name, final long startTime) throws Exception {
+        table.writeCsv(new File(name + ".csv"));
+        System.out.println(String.format("%s: %d rows in %d ms",
+                name, table.size(), (System.nanoTime() - startTime) / 1000000));
+    }
+
+}
@@ -0,0 +1,229 @@
+package de.setsoftware.cortLogAnalysis;
+
+import java.time.Instant;
+
+import de.setsoftware.cortLogAnalysis.model.Event;
+import de.setsoftware.cortLogAnalysis.model.EventTypes;
+import de.setsoftware.cortLogAnalysis.model.Events;
+import de.setsoftware.cortLogAnalysis.model.SessionSummary;
+
+/**
+ * The additional per session data for the "sessions_ext" table, determined in a single pass over
+ * the session's events. The semantics are the same as in the former "sessionsExt" view, which computed
+ * every value with a separate subquery.
+ */
+final class SessionMetrics {
+
+    static final String IMPORT_FILTER = "ignore changes in imports";
+    static final String WHITESPACE_FILTER = "ignore whitespace only changes";
+
+    private final SessionSummary summary;
+    private final int createdRemarkCount;
+    private final int launchCount;
+    private final String endType;
+    private final Long importFilterSize;
+    private final Long whitespaceFilterSize;
+    private final Long tourCount;
+    private final Long tourCountOriginal;
+    private final Long stopCountRel;
+    private final Long stopCountOriginal;
+    private final Long addedLinesRel;
+    private final Long addedLinesOriginal;
+    private final Long removedLinesRel;
+    private final Long removedLinesOriginal;
+
+    private SessionMetrics(final SessionSummary summary, final Builder b) {
+        this.summary = summary;
+        this.createdRemarkCount = b.createdRemarkCount;
+        this.launchCount = b.launchCount;
+        this.endType = b.endType;
+        this.importFilterSize = b.importFilterSize;
+        this.whitespaceFilterSize = b.whitespaceFilterSize;
+        this.tourCount = b.tourCount;
+        this.tourCountOriginal = b.tourCountOriginal;
+        this.stopCountRel = b.stopCountRel;
+        this.stopCountOriginal = b.stopCountOriginal;
+        this.addedLinesRel = b.addedLinesRel;
+        this.addedLinesOriginal = b.addedLinesOriginal;
+        this.removedLinesRel = b.removedLinesRel;
+        this.removedLinesOriginal = b.removedLinesOriginal;
+    }
+
+    /**
+     * Collects the metrics from the events of a session added one after the other.
+     */
+    static final class Builder {
+        private int createdRemarkCount;
+        private int launchCount;
+        private String endType;
+        private Instant endTypeTime;
+        private Long importFilterSize;
+        private Long whitespaceFilterSize;
+        private Long tourCount;
+        private Long tourCountOriginal;
+        private Long stopCountRel;
+        private Long stopCountOriginal;
+        private Long addedLinesRel;
+        private Long addedLinesOriginal;
+        private Long removedLinesRel;
+        private Long removedLinesOriginal;
+
+        public Builder add(final Event e) {
+            //the data type is interned, so comparing identity is sufficient
+            final String type = e.getDataType();
+            if (type == EventTypes.REMARK_CREATED) {
+                this.createdRemarkCount++;
+            } else if (type == EventTypes.LAUNCH) {
+                this.launchCount++;
+            } else if (type == EventTypes.REVIEW_ENDED) {
+                final String transition = e.getProperties().get("endTransition");
+                if (transition != null
+                        && (this.endTypeTime == null || !e.getTimestamp().isBefore(this.endTypeTime))) {
+                    this.endType = transition;
+                    this.endTypeTime = e.getTimestamp();
+                }
+            } else if (type == EventTypes.RELEVANCE_FILTER_RESULT) {
+                this.addFilterResult(e);
+            } else if (type == EventTypes.REVIEW_STARTED) {
+                this.tourCount = first(this.tourCount, e, "cntTours");
+                this.stopCountRel = first(this.stopCountRel, e, "cntStopsRel");
+                this.addedLinesRel = first(this.addedLinesRel, e, "cntAddedLinesRel");
+                this.removedLinesRel = first(this.removedLinesRel, e, "cntRemovedLinesRel");
+            } else if (type == EventTypes.ORIGINAL_TOUR_STRUCTURE) {
+                this.tourCountOriginal = first(this.tourCountOriginal, e, "cntTours");
+                this.stopCountOriginal = first(this.stopCountOriginal, e, "cntStops");
+                this.addedLinesOriginal = first(this.addedLinesOriginal, e, "cntAddedLines");
+                this.removedLinesOriginal = first(this.removedLinesOriginal, e, "cntRemovedLines");
+            }
+            return this;
+        }
+
+        private void addFilterResult(final Event e) {
+            final String description = e.getProperties().get("description");
+            final String size = e.getProperties().get("size");
+            if (description == null || size == null) {
+                return;
+            }
+            if (description.equals(IMPORT_FILTER)) {
+                this.importFilterSize = max(this.importFilterSize, castToSigned(size));
+            } else if (description.equals(WHITESPACE_FILTER)) {
+                this.whitespaceFilterSize = max(this.whitespaceFilterSize, castToSigned(size));
+            }
+        }
+
+        private static Long first(final Long current, final Event e, final String property) {
+            if (current != null) {
+                return current;
+            }
+            final String value = e.getProperties().get(property);
+            return value == null ? null : castToSigned(value);
+        }
+
+        private static Long max(final Long current, final long value) {
+            return current == null || current < value ? value : current;
+        }
+
+        public SessionMetrics build(final SessionSummary summary) {
+            return new SessionMetrics(summary, this);
+        }
+    }
+
+    static SessionMetrics of(final Events session) {
+        final Builder b = new Builder();
+        for (final Event e : session) {
+            b.add(e);
+        }
+        return b.build(session.getSummary());
+    }
+
+    /**
+     * Converts the string like MySQL's CAST(... AS SIGNED): the leading integer is used, and the result
+     * is 0 when there is none.
+     */
+    static long castToSigned(final String s) {
+        int i = 0;
+        while (i < s.length() && Character.isWhitespace(s.charAt(i))) {
+            i++;
+        }
+        boolean negative = false;
+        if (i < s.length() && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+            negative = s.charAt(i) == '-';
+            i++;
+        }
+        long result = 0;
+        while (i < s.length() && s.charAt(i) >= '0' && s.charAt(i) <= '9') {
+            result = result * 10 + (s.charAt(i) - '0');
+            i++;
+        }
+        return negative ? -result : result;
+    }
+
+    public SessionSummary getSummary() {
+        return this.summary;
+    }
+
+    /**
+     * Returns the duration in seconds, based on the start and end time rounded to whole seconds
+     * like in the DATETIME columns.
+     */
+    public long getDuration() {
+        return roundToSeconds(this.summary.getMaxTime()) - roundToSeconds(this.summary.getMinTime());
+    }
+
+    private static long roundToSeconds(final Instant time) {
+        return time.getEpochSecond() + (time.getNano() >= 500_000_000 ? 1 : 0);
+    }
+
+    public int getCreatedRemarkCount() {
+        return this.createdRemarkCount;
+    }
+
+    public int getLaunchCount() {
+        return this.launchCount;
+    }
+
+    public String getEndType() {
+        return this.endType;
+    }
+
+    public Long getImportFilterSize() {
+        return this.importFilterSize;
+    }
+
+    public Long getWhitespaceFilterSize() {
+        return this.whitespaceFilterSize;
+    }
+
+    public Long getTourCount() {
+        return this.tourCount;
+    }
+
+    public Long getTourCountOriginal() {
+        return this.tourCountOriginal;
+    }
+
+    public Long getStopCountRel() {
+        return this.stopCountRel;
+    }
+
+    public Long getStopCountOriginal() {
+        return this.stopCountOriginal;
+    }
+
+    public Long getAddedLinesRel() {
+        return this.addedLinesRel;
+    }
+
+    public Long getAddedLinesOriginal() {
+        return this.addedLinesOriginal;
+    }
+
+    public Long getRemovedLinesRel() {
+        return this.removedLinesRel;
+    }
+
+    public Long getRemovedLinesOriginal() {
+        return this.removedLinesOriginal;
+    }
+
+}
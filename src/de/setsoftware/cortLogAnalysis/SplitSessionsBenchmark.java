@@ -0,0 +1,77 @@
+package de.setsoftware.cortLogAnalysis;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Supplier;
+
+import de.setsoftware.cortLogAnalysis.model.Event;
+import de.setsoftware.cortLogAnalysis.model.Events;
+
+/**
+ * Compares the single-pass session splitting with the former implementation based on nested grouping,
+ * and checks that all variants produce the same sessions in the same order.
+ */
+public class SplitSessionsBenchmark {
+
+    private static final int RUNS = 10;
+
+    public static void main(final String[] args) throws Exception {
+        final Events events = Events.loadDefault();
+        events.discardVersionsWithOldKeys();
+        events.normalizeUsers();
+        System.out.println("Events loaded: " + events.size());
+
+        final List<Events> expected = splitWithNestedGrouping(events);
+        checkSame(expected, events.splitIntoSessions(false), "sequential");
+        checkSame(expected, events.splitIntoSessions(true), "parallel");
+
+        measure("nested groupBy", () -> splitWithNestedGrouping(events));
+        measure("single pass", () -> events.splitIntoSessions(false));
+        measure("single pass, parallel", () -> events.splitIntoSessions(true));
+    }
+
+    /**
+     * The former implementation of {@link Events#splitIntoSessions()}.
+     */
+    private static List<Events> splitWithNestedGrouping(final Events events) {
+        final List<Events> ret = new ArrayList<>();
+        for (final Events keyGroup : events.groupBy(Event::getResourceKey)) {
+            for (final Events userGroup : keyGroup.groupBy(Event::getUser)) {
+                ret.add(userGroup);
+            }
+        }
+        return ret;
+    }
+
+    private static void checkSame(final List<Events> expected, final List<Events> actual, final String variant) {
+        if (expected.size() != actual.size()) {
+            throw new AssertionError(variant + ": session count differs");
+        }
+        for (int i = 0; i < expected.size(); i++) {
+            final Iterator<Event> iterExpected = expected.get(i).iterator();
+            final Iterator<Event> iterActual = actual.get(i).iterator();
+            while (iterExpected.hasNext() && iterActual.hasNext()) {
+                if (iterExpected.next() != iterActual.next()) {
+                    throw new AssertionError(variant + ": session " + i + " differs");
+                }
+            }
+            if (iterExpected.hasNext() || iterActual.hasNext()) {
+                throw new AssertionError(variant + ": size of session " + i + " differs");
+            }
+        }
+    }
+
+    private static void measure(final String variant, final Supplier<List<Events>> splitter) {
+        //warm up
+        splitter.get();
+        final long startTime = System.nanoTime();
+        int sessionCount = 0;
+        for (int i = 0; i < RUNS; i++) {
+            sessionCount = splitter.get().size();
+        }
+        final long duration = System.nanoTime() - startTime;
+        System.out.println(String.format("%s: %.1f ms per run, %d sessions", variant, duration / 1e6 / RUNS, sessionCount));
+    }
+
+}
@@ -0,0 +1,193 @@
+package de.setsoftware.cortLogAnalysis;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Writes the rows as INSERT statements into a SQL script (MySQL dialect).
+ */
+public class SqlScriptSink implements TableSink {
+
+    private final Writer w;
+    private final int batchSize;
+    private TableDefinition table;
+    private String tablename;
+    private int rowsInStatement;
+    private final StringBuilder rowBuffer = new StringBuilder(256);
+    private char[] charBuffer = new char[256];
+
+    public SqlScriptSink(final File file) throws IOException {
+        this(file, 1);
+    }
+
+    /**
+     * Creates a sink that combines the given number of rows into one INSERT statement.
+     * When the file name ends with ".gz", the script is gzip compressed.
+     */
+    public SqlScriptSink(final File file, final int batchSize) throws IOException {
+        this(ParallelGzipOutputStream.open(file), batchSize);
+    }
+
+    /**
+     * Creates a sink that writes the script to the given stream, which is closed with the sink.
+     */
+    public SqlScriptSink(final OutputStream out, final int batchSize) {
+        this.w = new BufferedWriter(new OutputStreamWriter(out), 1 << 16);
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void start(final TableDefinition table) throws IOException {
+        this.table = table;
+        this.tablename = table.getName();
+        this.w.write(createTableStatements(table));
+    }
+
+    /**
+     * Returns the statements to drop and (re)create the given table. The secondary indexes are
+     * included unless they shall be created after the load.
+     */
+    static String createTableStatements(final TableDefinition table) {
+        final String tablename = table.getName();
+        final StringBuilder createTable = new StringBuilder();
+        createTable.append("DROP TABLE IF EXISTS `").append(tablename).append("`;\n");
+        createTable.append("CREATE TABLE `").append(tablename).append("` (");
+        final List<String> names = table.getColumnNames();
+        for (int i = 0; i < names.size(); i++) {
+            createTable.append("`").append(names.get(i)).append("` ").append(table.getColumnTypes().get(i)).append(",");
+        }
+        createTable.append("PRIMARY KEY (");
+        boolean first = true;
+        for (final String name : table.getPrimaryKey()) {
+            if (first) {
+                first = false;
+            } else {
+                createTable.append(",");
+            }
+            createTable.append("`").append(name).append("`");
+        }
+        createTable.append(")");
+        if (!table.isIndexesAfterLoad()) {
+            for (final TableDefinition.Index index : table.getIndexes()) {
+                createTable.append(",KEY `").append(index.getName()).append("` ");
+                appendColumnList(createTable, index.getColumns());
+            }
+        }
+        createTable.append(");\n");
+        return createTable.toString();
+    }
+
+    /**
+     * Returns the statements to create the secondary indexes of the given table.
+     */
+    static String createIndexStatements(final TableDefinition table) {
+        final StringBuilder b = new StringBuilder();
+        for (final TableDefinition.Index index : table.getIndexes()) {
+            b.append("CREATE INDEX `").append(index.getName()).append("` ON `").append(table.getName()).append("` ");
+            appendColumnList(b, index.getColumns());
+            b.append(";\n");
+        }
+        return b.toString();
+    }
+
+    private static void appendColumnList(final StringBuilder b, final List<String> columns) {
+        b.append("(");
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                b.append(",");
+            }
+            b.append("`").append(columns.get(i)).append("`");
+        }
+        b.append(")");
+    }
+
+    @Override
+    public void writeRow(final Object[] values) throws IOException {
+        final StringBuilder b = this.rowBuffer;
+        b.setLength(0);
+        if (this.rowsInStatement == 0) {
+            b.append("INSERT INTO `").append(this.tablename).append("` VALUES(");
+        } else {
+            b.append(",\n(");
+        }
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                b.append(',');
+            }
+            if (values[i] == null) {
+                b.append("NULL");
+            } else {
+                b.append('\'');
+                this.appendSql(b, values[i]);
+                b.append('\'');
+            }
+        }
+        b.append(')');
+        this.rowsInStatement++;
+        if (this.rowsInStatement >= this.batchSize) {
+            b.append(";\n");
+            this.rowsInStatement = 0;
+        }
+        this.write(b);
+    }
+
+    private void write(final StringBuilder b) throws IOException {
+        if (this.charBuffer.length < b.length()) {
+            this.charBuffer = new char[Math.max(b.length(), this.charBuffer.length * 2)];
+        }
+        b.getChars(0, b.length(), this.charBuffer, 0);
+        this.w.write(this.charBuffer, 0, b.length());
+    }
+
+    private void appendSql(final StringBuilder b, final Object o) {
+        if (o instanceof Instant) {
+            appendTimestamp(b, (Instant) o);
+        } else if (o instanceof Long || o instanceof Integer) {
+            b.append(((Number) o).longValue());
+        } else {
+            final String s = o.toString();
+            for (int i = 0; i < s.length(); i++) {
+                final char ch = s.charAt(i);
+                if (ch == '\\' || ch == '\'') {
+                    b.append('\\');
+                }
+                b.append(ch);
+            }
+        }
+    }
+
+    /**
+     * Appends the timestamp in the format "yyyy-MM-dd HH:mm:ss.fff" (UTC), with only as many
+     * fraction digits as needed.
+     */
+    static void appendTimestamp(final StringBuilder b, final Instant instant) {
+        final int start = b.length();
+        DateTimeFormatter.ISO_INSTANT.formatTo(instant, b);
+        //same format as before: "T" replaced by a space and without the trailing "Z"
+        for (int i = start; i < b.length(); i++) {
+            if (b.charAt(i) == 'T') {
+                b.setCharAt(i, ' ');
+            }
+        }
+        b.setLength(b.length() - 1);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.rowsInStatement > 0) {
+            this.w.write(";\n");
+        }
+        if (this.table != null && this.table.isIndexesAfterLoad()) {
+            this.w.write(createIndexStatements(this.table));
+        }
+        this.w.close();
+    }
+
+}
@@ -2,28 +2,48 @@ package de.setsoftware.cortLogAnalysis;
 
 import java.io.Closeable;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.Writer;
-import java.time.Instant;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 public class SqlWriter<T> implements Closeable {
 
-    private final Writer w;
+    private final TableSink sink;
     private boolean headerWritten;
     private final Map<String, Function<? super T, ? extends Object>> columns = new LinkedHashMap<>();
     private final Map<String, String> columnTypes = new LinkedHashMap<>();
     private final Set<String> primaryKey = new LinkedHashSet<>();
+    private final List<TableDefinition.Index> indexes = new ArrayList<>();
+    private boolean indexesAfterLoad;
     private final String tablename;
+    private List<Function<? super T, ? extends Object>> columnFunctions;
+    private Object[] values;
+
+    //only used when writing in the background
+    private static final int ITEMS_PER_CHUNK = 1024;
+    private BlockingQueue<List<T>> queue;
+    private List<T> currentChunk;
+    private Thread worker;
+    private volatile Throwable workerError;
+    private boolean workerErrorReported;
 
     public SqlWriter(final File file, String tablename) throws IOException {
-        this.w = new FileWriter(file);
+        this(new SqlScriptSink(file), tablename);
+    }
+
+    public SqlWriter(final TableSink sink, String tablename) {
+        this.sink = sink;
         this.tablename = tablename;
     }
 
@@ -39,60 +59,170 @@ public class SqlWriter<T> implements Closeable {
         this.columnTypes.put(name, type);
     }
 
+    /**
+     * Adds a secondary index on the given columns.
+     */
+    public void addIndex(final String name, final String... columnNames) {
+        assert !this.headerWritten;
+        for (final String column : columnNames) {
+            assert this.columns.containsKey(column) : column;
+        }
+        this.indexes.add(new TableDefinition.Index(name, Arrays.asList(columnNames)));
+    }
+
+    /**
+     * When set, the secondary indexes are created after all rows have been written instead of
+     * together with the table.
+     */
+    public void setIndexesAfterLoad(final boolean indexesAfterLoad) {
+        assert !this.headerWritten;
+        this.indexesAfterLoad = indexesAfterLoad;
+    }
+
+    /**
+     * Formats and writes the rows on a separate thread. The rows are handed over in chunks, at most
+     * the given number of chunks is buffered. When the buffer is full, {@link #writeRow(Object)} blocks.
+     * The items must not be changed after they have been passed to the writer.
+     */
+    public void writeInBackground(final int maxBufferedChunks) {
+        assert this.worker == null && !this.headerWritten;
+        this.queue = new ArrayBlockingQueue<>(maxBufferedChunks);
+        this.currentChunk = new ArrayList<>(ITEMS_PER_CHUNK);
+        this.worker = new Thread(this::processQueue, "SqlWriter-" + this.tablename);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
     public void writeRow(final T item) throws IOException {
         if (!this.headerWritten) {
             this.writeHeader();
-            this.headerWritten = true;
         }
 
-        this.w.write("INSERT INTO `");
-        this.w.write(this.tablename);
-        this.w.write("` VALUES(");
-        boolean firstInRecord = true;
-        for (final Function<? super T, ? extends Object> f : this.columns.values()) {
-            if (firstInRecord) {
-                firstInRecord = false;
-            } else {
-                this.w.write(',');
-            }
-            this.w.write("'" + this.toSql(f.apply(item)) + "'");
+        if (this.worker == null) {
+            this.writeRowToSink(item);
+            return;
+        }
+        this.currentChunk.add(item);
+        if (this.currentChunk.size() >= ITEMS_PER_CHUNK) {
+            this.handOver(this.currentChunk);
+            this.currentChunk = new ArrayList<>(ITEMS_PER_CHUNK);
         }
-        this.w.write(");\n");
     }
 
-    private String toSql(final Object o) {
-        if (o instanceof Instant) {
-            return o.toString().replace("T", " ").replaceAll("Z", "");
-        } else {
-            return o.toString().replace("\\", "\\\\").replace("'", "\\'");
+    private void writeHeader() throws IOException {
+        this.sink.start(new TableDefinition(
+                this.tablename,
+                new ArrayList<>(this.columns.keySet()),
+                new ArrayList<>(this.columnTypes.values()),
+                new ArrayList<>(this.primaryKey),
+                this.indexes,
+                this.indexesAfterLoad));
+        this.columnFunctions = new ArrayList<>(this.columns.values());
+        this.values = new Object[this.columnFunctions.size()];
+        this.headerWritten = true;
+    }
+
+    private void writeRowToSink(final T item) throws IOException {
+        for (int i = 0; i < this.values.length; i++) {
+            this.values[i] = this.columnFunctions.get(i).apply(item);
         }
+        this.sink.writeRow(this.values);
     }
 
-    private void writeHeader() throws IOException {
-        this.w.write("DROP TABLE IF EXISTS `"+ this.tablename + "`;\n");
+    private void handOver(final List<T> chunk) throws IOException {
+        this.checkWorkerError();
+        this.put(chunk);
+    }
 
-        final StringBuilder createTable = new StringBuilder();
-        createTable.append("CREATE TABLE `").append(this.tablename).append("` (");
-        for (final Entry<String, String> nameAndType : this.columnTypes.entrySet()) {
-            createTable.append("`").append(nameAndType.getKey()).append("` ").append(nameAndType.getValue()).append(",");
+    /**
+     * Puts the chunk into the queue. Does not block forever when the worker has stopped, e.g. because it
+     * was interrupted, but rethrows its error instead.
+     */
+    private void put(final List<T> chunk) throws IOException {
+        try {
+            while (!this.queue.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+                if (!this.worker.isAlive()) {
+                    this.checkWorkerError();
+                    throw new IOException("the writer thread for " + this.tablename + " has stopped");
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while writing " + this.tablename);
         }
-        createTable.append("PRIMARY KEY (");
-        boolean first = true;
-        for (final String name : this.primaryKey) {
-            if (first) {
-                first = false;
-            } else {
-                createTable.append(",");
+    }
+
+    private void processQueue() {
+        try {
+            while (true) {
+                final List<T> chunk = this.queue.take();
+                if (chunk.isEmpty()) {
+                    //end marker
+                    return;
+                }
+                if (this.workerError != null) {
+                    //only drain the queue so that the producer does not block
+                    continue;
+                }
+                try {
+                    for (final T item : chunk) {
+                        this.writeRowToSink(item);
+                    }
+                } catch (final IOException | RuntimeException | Error e) {
+                    this.workerError = e;
+                }
             }
-            createTable.append("`").append(name).append("`");
+        } catch (final InterruptedException e) {
+            this.workerError = e;
         }
-        createTable.append("));\n");
-        this.w.write(createTable.toString());
     }
 
+    /**
+     * Rethrows the error of the worker. It is only rethrown once, so that close() does not throw the same
+     * exception again when it is called after a failed write.
+     */
+    private void checkWorkerError() throws IOException {
+        final Throwable error = this.workerError;
+        if (error == null || this.workerErrorReported) {
+            return;
+        }
+        this.workerErrorReported = true;
+        if (error instanceof IOException) {
+            throw new IOException("writing " + this.tablename + " failed", error);
+        } else if (error instanceof RuntimeException) {
+            throw (RuntimeException) error;
+        } else if (error instanceof Error) {
+            throw (Error) error;
+        } else {
+            throw new IOException("writing " + this.tablename + " failed", error);
+        }
+    }
+
+    /**
+     * Finishes writing. The table is also created when no rows were written, so that queries on it don't fail.
+     */
     @Override
     public void close() throws IOException {
-        this.w.close();
+        try {
+            if (!this.headerWritten) {
+                this.writeHeader();
+            }
+            if (this.worker != null) {
+                if (!this.currentChunk.isEmpty() && this.workerError == null) {
+                    this.put(this.currentChunk);
+                }
+                this.put(Collections.emptyList());
+                try {
+                    this.worker.join();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("interrupted while writing " + this.tablename);
+                }
+                this.checkWorkerError();
+            }
+        } finally {
+            this.sink.close();
+        }
     }
 
 }
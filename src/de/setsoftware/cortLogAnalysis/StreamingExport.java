@@ -0,0 +1,144 @@
+package de.setsoftware.cortLogAnalysis;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import de.setsoftware.cortLogAnalysis.CortToSqlFull.EventProperty;
+import de.setsoftware.cortLogAnalysis.model.Event;
+import de.setsoftware.cortLogAnalysis.model.Events;
+import de.setsoftware.cortLogAnalysis.model.SessionKey;
+import de.setsoftware.cortLogAnalysis.model.SessionSummary;
+
+/**
+ * Exports events that arrive in time order with bounded memory. Event and property rows are written
+ * immediately, for the sessions only a small summary is kept until the session is regarded as complete.
+ * This is the case when too many sessions are open and the session is the least recently active one, or,
+ * if a session timeout is given, when there was no event for the session for that time.
+ * The keys of the written sessions are kept until the end, which needs memory per session but not per event.
+ * A session that gets another event after it has been written results in an exception, as its row would
+ * be incomplete and a second row would have the same key. Otherwise the result is the same as for the
+ * in-memory export.
+ */
+class StreamingExport implements Consumer<Event> {
+
+    private static final class OpenSession {
+        private final SessionSummary.Builder summary = new SessionSummary.Builder();
+        private final SessionMetrics.Builder metrics = new SessionMetrics.Builder();
+        private Instant lastEventTime;
+    }
+
+    private final SqlWriter<SessionSummary> sessionWriter;
+    private final SqlWriter<SessionMetrics> sessionExtWriter;
+    private final SqlWriter<Event> eventWriter;
+    private final SqlWriter<EventProperty> propertyWriter;
+    private final int maxOpenSessions;
+    //null if sessions are only written when too many are open
+    private final Duration sessionTimeout;
+
+    //in access order, so that the least recently active session comes first
+    private final LinkedHashMap<SessionKey, OpenSession> openSessions = new LinkedHashMap<>(16, 0.75f, true);
+    private final Set<SessionKey> writtenSessions = new HashSet<>();
+    private int sessionCount;
+    private int maxOpenSessionCount;
+
+    public StreamingExport(
+            final SqlWriter<SessionSummary> sessionWriter,
+            final SqlWriter<SessionMetrics> sessionExtWriter,
+            final SqlWriter<Event> eventWriter,
+            final SqlWriter<EventProperty> propertyWriter,
+            final int maxOpenSessions,
+            final Duration sessionTimeout) {
+        this.sessionWriter = sessionWriter;
+        this.sessionExtWriter = sessionExtWriter;
+        this.eventWriter = eventWriter;
+        this.propertyWriter = propertyWriter;
+        this.maxOpenSessions = maxOpenSessions;
+        this.sessionTimeout = sessionTimeout;
+    }
+
+    @Override
+    public void accept(final Event rawEvent) {
+        if (!rawEvent.hasNewKey()) {
+            return;
+        }
+        final Event e = Events.normalizeUser(rawEvent);
+        try {
+            this.eventWriter.writeRow(e);
+            for (final String name : e.getProperties().keySet()) {
+                this.propertyWriter.writeRow(new EventProperty(e, name));
+            }
+
+            final SessionKey key = SessionKey.of(e);
+            OpenSession session = this.openSessions.get(key);
+            if (session == null) {
+                if (this.writtenSessions.contains(key)) {
+                    throw new IllegalStateException("The session " + key + " has another event at " + e.getTimestamp()
+                        + " after it has been written. Increase maxOpenSessions"
+                        + (this.sessionTimeout == null ? "." : " or sessionTimeoutHours."));
+                }
+                session = new OpenSession();
+                this.openSessions.put(key, session);
+                this.maxOpenSessionCount = Math.max(this.maxOpenSessionCount, this.openSessions.size());
+            }
+            session.summary.add(e);
+            session.metrics.add(e);
+            session.lastEventTime = e.getTimestamp();
+
+            this.flushSessions(this.sessionTimeout == null ? null : e.getTimestamp().minus(this.sessionTimeout));
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Writes the least recently active sessions while too many are open or while they are idle since
+     * before the given time (null for no time limit).
+     */
+    private void flushSessions(final Instant idleLimit) throws IOException {
+        final Iterator<Map.Entry<SessionKey, OpenSession>> iter = this.openSessions.entrySet().iterator();
+        while (iter.hasNext()) {
+            final Map.Entry<SessionKey, OpenSession> eldest = iter.next();
+            if (this.openSessions.size() <= this.maxOpenSessions
+                    && (idleLimit == null || !eldest.getValue().lastEventTime.isBefore(idleLimit))) {
+                break;
+            }
+            this.flush(eldest.getKey(), eldest.getValue());
+            iter.remove();
+        }
+    }
+
+    private void flush(final SessionKey key, final OpenSession session) throws IOException {
+        this.writtenSessions.add(key);
+        final SessionSummary summary = session.summary.build();
+        this.sessionWriter.writeRow(summary);
+        this.sessionExtWriter.writeRow(session.metrics.build(summary));
+        this.sessionCount++;
+    }
+
+    /**
+     * Writes the sessions that are still open.
+     */
+    public void finish() throws IOException {
+        for (final Map.Entry<SessionKey, OpenSession> e : this.openSessions.entrySet()) {
+            this.flush(e.getKey(), e.getValue());
+        }
+        this.openSessions.clear();
+    }
+
+    public int getSessionCount() {
+        return this.sessionCount;
+    }
+
+    public int getMaxOpenSessionCount() {
+        return this.maxOpenSessionCount;
+    }
+
+}
@@ -0,0 +1,91 @@
+package de.setsoftware.cortLogAnalysis;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Name, columns, primary key and secondary indexes of a table that is written by a {@link SqlWriter}.
+ */
+public final class TableDefinition {
+
+    /**
+     * A secondary (non-unique) index.
+     */
+    public static final class Index {
+        private final String name;
+        private final List<String> columns;
+
+        public Index(final String name, final List<String> columns) {
+            this.name = name;
+            this.columns = Collections.unmodifiableList(new ArrayList<>(columns));
+        }
+
+        public String getName() {
+            return this.name;
+        }
+
+        public List<String> getColumns() {
+            return this.columns;
+        }
+    }
+
+    private final String name;
+    private final List<String> columnNames;
+    private final List<String> columnTypes;
+    private final List<String> primaryKey;
+    private final List<Index> indexes;
+    private final boolean indexesAfterLoad;
+
+    public TableDefinition(
+            final String name,
+            final List<String> columnNames,
+            final List<String> columnTypes,
+            final List<String> primaryKey) {
+        this(name, columnNames, columnTypes, primaryKey, Collections.emptyList(), false);
+    }
+
+    public TableDefinition(
+            final String name,
+            final List<String> columnNames,
+            final List<String> columnTypes,
+            final List<String> primaryKey,
+            final List<Index> indexes,
+            final boolean indexesAfterLoad) {
+        this.name = name;
+        this.columnNames = Collections.unmodifiableList(new ArrayList<>(columnNames));
+        this.columnTypes = Collections.unmodifiableList(new ArrayList<>(columnTypes));
+        this.primaryKey = Collections.unmodifiableList(new ArrayList<>(primaryKey));
+        this.indexes = Collections.unmodifiableList(new ArrayList<>(indexes));
+        this.indexesAfterLoad = indexesAfterLoad;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public List<String> getColumnNames() {
+        return this.columnNames;
+    }
+
+    public List<String> getColumnTypes() {
+        return this.columnTypes;
+    }
+
+    public List<String> getPrimaryKey() {
+        return this.primaryKey;
+    }
+
+    public List<Index> getIndexes() {
+        return this.indexes;
+    }
+
+    /**
+     * Returns true when the secondary indexes shall be created after all rows have been loaded instead of
+     * together with the table. This is normally faster for large tables.
+     */
+    public boolean isIndexesAfterLoad() {
+        return this.indexesAfterLoad;
+    }
+
+}
@@ -0,0 +1,22 @@
+package de.setsoftware.cortLogAnalysis;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Target for the rows of a {@link SqlWriter}, e.g. a SQL script or a database.
+ */
+public interface TableSink extends Closeable {
+
+    /**
+     * Creates the table. Called once before the first row, also when there are no rows.
+     */
+    void start(TableDefinition table) throws IOException;
+
+    /**
+     * Writes a row. The values are in the order of the columns in the table definition. The
+     * array is reused by the caller, so it must not be stored.
+     */
+    void writeRow(Object[] values) throws IOException;
+
+}
@@ -3,7 +3,6 @@ package de.setsoftware.cortLogAnalysis;
 import java.io.File;
 import java.util.List;
 
-import de.setsoftware.cortLogAnalysis.model.Event;
 import de.setsoftware.cortLogAnalysis.model.EventTypes;
 import de.setsoftware.cortLogAnalysis.model.Events;
 
@@ -19,15 +18,15 @@ public class ToReviewRecords {
         try (SqlWriter<Events> w = new SqlWriter<>(new File("cortsessions.script"), "cortdata")) {
             w.addColumn("key", "VARCHAR(256)", e -> e.getExample().getResource());
             w.addColumn("user", "VARCHAR(256)", e -> e.getExample().getUser());
-            w.addColumn("round", "INTEGER", e -> e.getRoundFromFirstSessionStart());
-            w.addColumn("type", "VARCHAR(256)", e -> e.getTypeOfFirstSession());
-            w.addColumn("startTime", "TIMESTAMP", e -> e.minTime());
-            w.addColumn("endTime", "TIMESTAMP", e -> e.maxTime());
-            w.addColumn("tool", "VARCHAR(256)", e -> e.getToolFromFirstEvent());
-            w.addColumn("toolCount", "INTEGER", e -> e.mapToSet(Event::getTool).size());
+            w.addColumn("round", "INTEGER", e -> e.getSummary().getRoundFromFirstSessionStart());
+            w.addColumn("type", "VARCHAR(256)", e -> e.getSummary().getTypeOfFirstSession());
+            w.addColumn("startTime", "TIMESTAMP", e -> e.getSummary().getMinTime());
+            w.addColumn("endTime", "TIMESTAMP", e -> e.getSummary().getMaxTime());
+            w.addColumn("tool", "VARCHAR(256)", e -> e.getSummary().getToolFromFirstEvent());
+            w.addColumn("toolCount", "INTEGER", e -> e.getSummary().getTools().size());
             w.addColumn("eventCount", "INTEGER", e -> e.size());
-            w.addColumn("launchCount", "INTEGER", e -> e.countEventType(EventTypes.LAUNCH));
-            w.addColumn("changeCount", "INTEGER", e -> e.countEventType(EventTypes.FILE_CHANGED));
+            w.addColumn("launchCount", "INTEGER", e -> e.getSummary().getCount(EventTypes.LAUNCH));
+            w.addColumn("changeCount", "INTEGER", e -> e.getSummary().getCount(EventTypes.FILE_CHANGED));
 
             for (final Events eventsForSession : sessions) {
                 w.writeRow(eventsForSession);
@@ -0,0 +1,106 @@
+package de.setsoftware.cortLogAnalysis.model;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable, array based property map of an event. Events of the same type mostly have the same property
+ * keys, so the key arrays are shared between all maps with the same keys in the same order.
+ */
+final class CompactProperties extends AbstractMap<String, String> {
+
+    private static final ConcurrentHashMap<List<String>, String[]> KEY_ARRAYS = new ConcurrentHashMap<>();
+
+    private static final CompactProperties EMPTY = new CompactProperties(new String[0], new String[0]);
+
+    private final String[] keys;
+    private final String[] values;
+
+    private CompactProperties(final String[] keys, final String[] values) {
+        this.keys = keys;
+        this.values = values;
+    }
+
+    public static CompactProperties of(final Map<String, String> properties) {
+        if (properties instanceof CompactProperties) {
+            return (CompactProperties) properties;
+        }
+        if (properties.isEmpty()) {
+            return EMPTY;
+        }
+        final String[] keys = new String[properties.size()];
+        final String[] values = new String[properties.size()];
+        int i = 0;
+        for (final Entry<String, String> e : properties.entrySet()) {
+            keys[i] = Symbols.intern(e.getKey());
+            values[i] = Symbols.internValue(e.getValue());
+            i++;
+        }
+        final String[] existingKeys = KEY_ARRAYS.putIfAbsent(Arrays.asList(keys), keys);
+        return new CompactProperties(existingKeys == null ? keys : existingKeys, values);
+    }
+
+    private int indexOf(final Object key) {
+        for (int i = 0; i < this.keys.length; i++) {
+            if (this.keys[i] == key || (this.keys[i] != null && this.keys[i].equals(key))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String get(final Object key) {
+        final int index = this.indexOf(key);
+        return index < 0 ? null : this.values[index];
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return this.indexOf(key) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return this.keys.length;
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        return new AbstractSet<Entry<String, String>>() {
+            @Override
+            public Iterator<Entry<String, String>> iterator() {
+                return new Iterator<Entry<String, String>>() {
+                    private int next;
+
+                    @Override
+                    public boolean hasNext() {
+                        return this.next < CompactProperties.this.keys.length;
+                    }
+
+                    @Override
+                    public Entry<String, String> next() {
+                        if (!this.hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        final int i = this.next++;
+                        return new SimpleImmutableEntry<>(CompactProperties.this.keys[i], CompactProperties.this.values[i]);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return CompactProperties.this.keys.length;
+            }
+        };
+    }
+
+}
@@ -3,19 +3,11 @@ package de.setsoftware.cortLogAnalysis.model;
 import java.io.File;
 import java.io.IOException;
 import java.time.Instant;
-import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
 
 import javax.xml.datatype.DatatypeConfigurationException;
-import javax.xml.datatype.DatatypeFactory;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
+import javax.xml.stream.XMLStreamException;
 
 public class Event {
 
@@ -24,6 +16,7 @@ public class Event {
     private final String tool;
     private final String dataType;
     private final String resource;
+    private final ResourceKey resourceKey;
     private final Map<String, String> properties;
 
     public Event(
@@ -33,38 +26,18 @@ public class Event {
             final String dataType,
             final String resource,
             final Map<String, String> properties) {
-        this.user = user;
+        this.user = Symbols.intern(user);
         this.timestamp = timestamp;
-        this.tool = tool;
-        this.dataType = dataType;
-        this.resource = resource;
-        this.properties = properties;
+        this.tool = Symbols.intern(tool);
+        this.dataType = Symbols.intern(dataType);
+        this.resource = Symbols.intern(resource);
+        this.resourceKey = ResourceKey.of(this.resource);
+        this.properties = CompactProperties.of(properties);
     }
 
     public static Event load(final File child)
-            throws SAXException, IOException, ParserConfigurationException, DatatypeConfigurationException {
-        final Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(child);
-        final Map<String, String> properties = new LinkedHashMap<>();
-        final NodeList propertyNodes = doc.getElementsByTagName("Property");
-        for (int i = 0; i < propertyNodes.getLength(); i++) {
-            final Element n = (Element) propertyNodes.item(i);
-            properties.put(getChildElementContent(n, "Key"), getChildElementContent(n, "Value"));
-        }
-        return new Event(
-                getChildElementContent(doc.getDocumentElement(), "Owner"),
-                parseTimestamp(getChildElementContent(doc.getDocumentElement(), "Runtime")),
-                getChildElementContent(doc.getDocumentElement(), "Tool"),
-                getChildElementContent(doc.getDocumentElement(), "SensorDataType"),
-                getChildElementContent(doc.getDocumentElement(), "Resource"),
-                properties);
-    }
-
-    private static Instant parseTimestamp(final String s) throws DatatypeConfigurationException {
-        return DatatypeFactory.newInstance().newXMLGregorianCalendar(s).toGregorianCalendar().toInstant();
-    }
-
-    private static String getChildElementContent(final Element e, final String elementName) {
-        return e.getElementsByTagName(elementName).item(0).getTextContent();
+            throws IOException, XMLStreamException, DatatypeConfigurationException {
+        return EventXmlParser.parse(child);
     }
 
     public String getUser() {
@@ -87,13 +60,18 @@ public class Event {
         return this.resource;
     }
 
+    public ResourceKey getResourceKey() {
+        return this.resourceKey;
+    }
+
     public Map<String, String> getProperties() {
         return this.properties;
     }
 
     public boolean isSessionStart() {
-        return this.dataType.equals("reviewStarted")
-            || this.dataType.equals("fixingStarted");
+        //the data type is interned, so comparing identity is sufficient
+        return this.dataType == EventTypes.REVIEW_STARTED
+            || this.dataType == EventTypes.FIXING_STARTED;
     }
 
     public Optional<String> getProperty(final String key) {
@@ -101,27 +79,23 @@ public class Event {
     }
 
     public boolean hasNewKey() {
-        return this.resource.indexOf(',') >= 0;
+        return this.resourceKey.isNewKey();
     }
 
     public String getTicketKey() {
-        return this.splitResource()[0];
+        return this.resourceKey.getTicketKey();
     }
 
     public String getSessionType() {
-        return this.splitResource()[1];
+        return this.resourceKey.getSessionType();
     }
 
     public int getReviewRound() {
-        return Integer.parseInt(this.splitResource()[2]);
+        return this.resourceKey.getReviewRound();
     }
 
     public String getSessionId() {
-        return this.splitResource()[3];
-    }
-
-    private String[] splitResource() {
-        return this.resource.split(",");
+        return this.resourceKey.getSessionId();
     }
 
 }
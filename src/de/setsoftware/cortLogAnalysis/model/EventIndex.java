@@ -0,0 +1,205 @@
+package de.setsoftware.cortLogAnalysis.model;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Inverted indexes for a list of events: for every data type, user, session id and property key, the
+ * positions of the matching events in ascending order. The index is built in a single pass. Afterwards,
+ * counts can be determined in constant time and the matching events in time proportional to their number.
+ */
+public final class EventIndex {
+
+    /**
+     * The attributes of the events that are indexed.
+     */
+    public enum Attribute {
+        DATA_TYPE,
+        USER,
+        SESSION_ID,
+        PROPERTY_KEY
+    }
+
+    private static final int[] NO_POSITIONS = new int[0];
+
+    /**
+     * Growable list of positions, only used while building.
+     */
+    private static final class PostingsBuilder {
+        private int[] positions = new int[8];
+        private int size;
+
+        public void add(final int position) {
+            if (this.size == this.positions.length) {
+                this.positions = Arrays.copyOf(this.positions, this.size * 2);
+            }
+            this.positions[this.size++] = position;
+        }
+
+        public int[] build() {
+            return Arrays.copyOf(this.positions, this.size);
+        }
+    }
+
+    private final List<Event> events;
+    private final Map<Attribute, Map<String, int[]>> postings = new EnumMap<>(Attribute.class);
+    private final long buildTimeNanos;
+
+    private EventIndex(final List<Event> events) {
+        final long startTime = System.nanoTime();
+        this.events = events;
+        final Map<Attribute, Map<String, PostingsBuilder>> builders = new EnumMap<>(Attribute.class);
+        for (final Attribute attribute : Attribute.values()) {
+            builders.put(attribute, new LinkedHashMap<>());
+        }
+        final Map<String, PostingsBuilder> byDataType = builders.get(Attribute.DATA_TYPE);
+        final Map<String, PostingsBuilder> byUser = builders.get(Attribute.USER);
+        final Map<String, PostingsBuilder> bySessionId = builders.get(Attribute.SESSION_ID);
+        final Map<String, PostingsBuilder> byPropertyKey = builders.get(Attribute.PROPERTY_KEY);
+        for (int i = 0; i < events.size(); i++) {
+            final Event e = events.get(i);
+            add(byDataType, e.getDataType(), i);
+            add(byUser, e.getUser(), i);
+            add(bySessionId, e.getResourceKey().getSessionId(), i);
+            for (final String key : e.getProperties().keySet()) {
+                add(byPropertyKey, key, i);
+            }
+        }
+        for (final Attribute attribute : Attribute.values()) {
+            final Map<String, int[]> map = new LinkedHashMap<>();
+            for (final Map.Entry<String, PostingsBuilder> e : builders.get(attribute).entrySet()) {
+                map.put(e.getKey(), e.getValue().build());
+            }
+            this.postings.put(attribute, map);
+        }
+        this.buildTimeNanos = System.nanoTime() - startTime;
+    }
+
+    private static void add(final Map<String, PostingsBuilder> map, final String key, final int position) {
+        if (key != null) {
+            map.computeIfAbsent(key, k -> new PostingsBuilder()).add(position);
+        }
+    }
+
+    static EventIndex build(final List<Event> events) {
+        return new EventIndex(events);
+    }
+
+    private int[] positions(final Attribute attribute, final String value) {
+        final int[] ret = this.postings.get(attribute).get(value);
+        return ret == null ? NO_POSITIONS : ret;
+    }
+
+    public int count(final Attribute attribute, final String value) {
+        return this.positions(attribute, value).length;
+    }
+
+    public boolean contains(final Attribute attribute, final String value) {
+        return this.postings.get(attribute).containsKey(value);
+    }
+
+    /**
+     * Returns the events with the given value for the attribute, in time order. For {@link Attribute#PROPERTY_KEY},
+     * these are the events that have the property.
+     */
+    public Events get(final Attribute attribute, final String value) {
+        return Events.ofSorted(this.eventsAt(this.positions(attribute, value)));
+    }
+
+    /**
+     * Returns the distinct values of the attribute, in the order of first occurrence.
+     */
+    public Set<String> values(final Attribute attribute) {
+        return Collections.unmodifiableSet(this.postings.get(attribute).keySet());
+    }
+
+    /**
+     * Groups the events by the given attribute, in the order of first occurrence of the values.
+     */
+    public List<Events> groupBy(final Attribute attribute) {
+        final List<Events> ret = new ArrayList<>();
+        for (final int[] positions : this.postings.get(attribute).values()) {
+            ret.add(Events.ofSorted(this.eventsAt(positions)));
+        }
+        return ret;
+    }
+
+    private List<Event> eventsAt(final int[] positions) {
+        final List<Event> ret = new ArrayList<>(positions.length);
+        for (final int position : positions) {
+            ret.add(this.events.get(position));
+        }
+        return ret;
+    }
+
+    /**
+     * Returns the positions (indices in time order) of the events with the given value, without copying them.
+     */
+    public List<Integer> getPositions(final Attribute attribute, final String value) {
+        final int[] positions = this.positions(attribute, value);
+        return new AbstractList<Integer>() {
+            @Override
+            public Integer get(final int index) {
+                return positions[index];
+            }
+
+            @Override
+            public int size() {
+                return positions.length;
+            }
+        };
+    }
+
+    public long getBuildTimeNanos() {
+        return this.buildTimeNanos;
+    }
+
+    /**
+     * Returns an estimate of the memory used by the index in bytes (on a 64 bit JVM with compressed pointers).
+     * The keys are not counted, as they are shared with the events.
+     */
+    public long estimateMemory() {
+        long ret = 0;
+        for (final Map<String, int[]> map : this.postings.values()) {
+            //hash table slot, linked entry and array header
+            ret += map.size() * (4L + 40L + 16L);
+            for (final int[] positions : map.values()) {
+                ret += 4L * positions.length;
+            }
+        }
+        return ret;
+    }
+
+    public int getPostingCount() {
+        int ret = 0;
+        for (final Map<String, int[]> map : this.postings.values()) {
+            for (final int[] positions : map.values()) {
+                ret += positions.length;
+            }
+        }
+        return ret;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder b = new StringBuilder();
+        b.append(String.format("Index for %d events: %d postings, %.1f KB, built in %.1f ms (",
+                this.events.size(),
+                this.getPostingCount(),
+                this.estimateMemory() / 1024.0,
+                this.buildTimeNanos / 1e6));
+        for (final Attribute attribute : Attribute.values()) {
+            b.append(attribute == Attribute.DATA_TYPE ? "" : ", ");
+            b.append(attribute.name().toLowerCase()).append('=').append(this.postings.get(attribute).size());
+        }
+        return b.append(" keys)").toString();
+    }
+
+}
@@ -0,0 +1,364 @@
+package de.setsoftware.cortLogAnalysis.model;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.function.Consumer;
+
+/**
+ * Binary snapshot of a loaded event corpus. All strings are stored once in a dictionary and
+ * referenced by index, timestamps are stored as epoch millis. The snapshot contains a fingerprint
+ * of the source directory tree, so that it can be detected when it is outdated.
+ */
+public class EventSnapshot {
+
+    private static final int MAGIC = 0x43525453;
+    private static final int VERSION = 1;
+    private static final int NO_STRING = -1;
+    private static final int DEFAULT_WINDOW_SIZE = 1 << 30;
+
+    private EventSnapshot() {
+    }
+
+    /**
+     * Determines a fingerprint of the files in the given directory tree. It changes when a file is added,
+     * removed, renamed, or when the size or modification time of a file changes.
+     */
+    public static long fingerprint(final File directory) throws IOException {
+        return fingerprint(IngestManifest.scan(directory));
+    }
+
+    static long fingerprint(final List<IngestManifest.FileEntry> files) {
+        long sum = 0;
+        for (final IngestManifest.FileEntry f : files) {
+            long h = f.getPath().hashCode();
+            h = h * 31 + f.getSize();
+            h = h * 31 + f.getLastModified();
+            //order independent combination, so that the walk order does not matter
+            sum += mix(h);
+        }
+        return mix(sum ^ files.size());
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Writes the given events to the given file. The file is replaced atomically, so that a
+     * crash while writing does not leave a broken snapshot.
+     */
+    public static void write(final File file, final long fingerprint, final Iterable<Event> events) throws IOException {
+        final Map<String, Integer> dictionary = new LinkedHashMap<>();
+        int eventCount = 0;
+        for (final Event e : events) {
+            register(dictionary, e);
+            eventCount++;
+        }
+        try (Writer w = new Writer(file, fingerprint, dictionary, eventCount)) {
+            for (final Event e : events) {
+                w.add(e);
+            }
+            w.commit();
+        }
+    }
+
+    static void register(final Map<String, Integer> dictionary, final Event e) {
+        register(dictionary, e.getUser());
+        register(dictionary, e.getTool());
+        register(dictionary, e.getDataType());
+        register(dictionary, e.getResource());
+        for (final Entry<String, String> p : e.getProperties().entrySet()) {
+            register(dictionary, p.getKey());
+            register(dictionary, p.getValue());
+        }
+    }
+
+    /**
+     * Writes a snapshot event by event, so that it does not have to be built in memory. The dictionary has
+     * to contain the strings of all events and the number of events has to be known in advance. The file
+     * is only replaced when {@link #commit()} is called.
+     */
+    static final class Writer implements Closeable {
+        private final File file;
+        private final File tmp;
+        private final Map<String, Integer> dictionary;
+        private final int eventCount;
+        private final DataOutputStream out;
+        private int written;
+        private boolean committed;
+
+        Writer(final File file, final long fingerprint, final Map<String, Integer> dictionary, final int eventCount)
+                throws IOException {
+            this.file = file;
+            this.tmp = new File(file.getPath() + ".tmp");
+            this.dictionary = dictionary;
+            this.eventCount = eventCount;
+            this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(this.tmp), 1 << 16));
+            this.out.writeInt(MAGIC);
+            this.out.writeInt(VERSION);
+            this.out.writeLong(fingerprint);
+            this.out.writeInt(dictionary.size());
+            for (final String s : dictionary.keySet()) {
+                final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                this.out.writeInt(bytes.length);
+                this.out.write(bytes);
+            }
+            this.out.writeInt(eventCount);
+        }
+
+        public void add(final Event e) throws IOException {
+            this.out.writeInt(this.dictionary.get(e.getUser()));
+            this.out.writeLong(e.getTimestamp().toEpochMilli());
+            this.out.writeInt(this.dictionary.get(e.getTool()));
+            this.out.writeInt(this.dictionary.get(e.getDataType()));
+            this.out.writeInt(this.dictionary.get(e.getResource()));
+            this.out.writeInt(e.getProperties().size());
+            for (final Entry<String, String> p : e.getProperties().entrySet()) {
+                this.out.writeInt(index(this.dictionary, p.getKey()));
+                this.out.writeInt(index(this.dictionary, p.getValue()));
+            }
+            this.written++;
+        }
+
+        /**
+         * Replaces the file atomically with the written snapshot.
+         */
+        public void commit() throws IOException {
+            if (this.written != this.eventCount) {
+                throw new IllegalStateException(this.written + " events written instead of " + this.eventCount);
+            }
+            this.out.close();
+            Files.move(this.tmp.toPath(), this.file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            this.committed = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!this.committed) {
+                this.out.close();
+                Files.deleteIfExists(this.tmp.toPath());
+            }
+        }
+    }
+
+    private static void register(final Map<String, Integer> dictionary, final String s) {
+        if (s != null && !dictionary.containsKey(s)) {
+            dictionary.put(s, dictionary.size());
+        }
+    }
+
+    private static int index(final Map<String, Integer> dictionary, final String s) {
+        return s == null ? NO_STRING : dictionary.get(s);
+    }
+
+    /**
+     * Returns the fingerprint stored in the given snapshot, or null if the file does not exist or is
+     * not a snapshot in the current format.
+     */
+    public static Long readFingerprint(final File file) throws IOException {
+        if (!file.exists()) {
+            return null;
+        }
+        try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final ByteBuffer header = ByteBuffer.allocate(16);
+            while (header.hasRemaining()) {
+                if (ch.read(header) < 0) {
+                    return null;
+                }
+            }
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                return null;
+            }
+            return header.getLong();
+        }
+    }
+
+    /**
+     * Reads the events from the given snapshot file. The file is mapped into memory instead of being read
+     * through a stream.
+     */
+    public static List<Event> read(final File file) throws IOException {
+        final List<Event> ret = new ArrayList<>();
+        forEach(file, ret::add);
+        return ret;
+    }
+
+    /**
+     * Passes the events from the given snapshot file to the consumer, in the order in which they are stored.
+     * Only the string dictionary is kept in memory, so the events can be processed without materializing
+     * the whole corpus.
+     */
+    public static void forEach(final File file, final Consumer<Event> consumer) throws IOException {
+        forEach(file, DEFAULT_WINDOW_SIZE, consumer);
+    }
+
+    static void forEach(final File file, final int windowSize, final Consumer<Event> consumer) throws IOException {
+        try (Reader r = new Reader(file, windowSize)) {
+            Event e;
+            while ((e = r.next()) != null) {
+                consumer.accept(e);
+            }
+        }
+    }
+
+    /**
+     * Reads the events of a snapshot file one at a time, in the order in which they are stored.
+     */
+    static final class Reader implements Closeable {
+        private final FileChannel channel;
+        private final WindowedReader buf;
+        private final String[] dictionary;
+        private final int eventCount;
+        private int readCount;
+
+        Reader(final File file) throws IOException {
+            this(file, DEFAULT_WINDOW_SIZE);
+        }
+
+        Reader(final File file, final int windowSize) throws IOException {
+            this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            try {
+                this.buf = new WindowedReader(this.channel, windowSize);
+                if (this.buf.getInt() != MAGIC || this.buf.getInt() != VERSION) {
+                    throw new IOException("not a snapshot file: " + file);
+                }
+                this.buf.getLong();
+
+                this.dictionary = new String[this.buf.getInt()];
+                byte[] scratch = new byte[256];
+                for (int i = 0; i < this.dictionary.length; i++) {
+                    final int len = this.buf.getInt();
+                    if (len > scratch.length) {
+                        scratch = new byte[Math.max(len, scratch.length * 2)];
+                    }
+                    this.buf.get(scratch, len);
+                    this.dictionary[i] = new String(scratch, 0, len, StandardCharsets.UTF_8);
+                }
+                this.eventCount = this.buf.getInt();
+            } catch (final IOException | RuntimeException e) {
+                this.channel.close();
+                throw e;
+            }
+        }
+
+        public String[] getDictionary() {
+            return this.dictionary;
+        }
+
+        public int size() {
+            return this.eventCount;
+        }
+
+        /**
+         * Returns the next event, or null when all events have been read.
+         */
+        public Event next() throws IOException {
+            if (this.readCount == this.eventCount) {
+                return null;
+            }
+            this.readCount++;
+            final String[] dictionary = this.dictionary;
+            final String user = dictionary[this.buf.getInt()];
+            final Instant timestamp = Instant.ofEpochMilli(this.buf.getLong());
+            final String tool = dictionary[this.buf.getInt()];
+            final String dataType = dictionary[this.buf.getInt()];
+            final String resource = dictionary[this.buf.getInt()];
+            final int propertyCount = this.buf.getInt();
+            final Map<String, String> properties = new LinkedHashMap<>(propertyCount * 2);
+            for (int j = 0; j < propertyCount; j++) {
+                final int key = this.buf.getInt();
+                final int value = this.buf.getInt();
+                properties.put(
+                        key == NO_STRING ? null : dictionary[key],
+                        value == NO_STRING ? null : dictionary[value]);
+            }
+            return new Event(user, timestamp, tool, dataType, resource, properties);
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.channel.close();
+        }
+    }
+
+    /**
+     * Sequential reads from a file that is mapped in windows of limited size, so that files larger than
+     * 2 GB (the limit for a single mapping) can be read. A new window is mapped when the next value does not
+     * fit into the current one.
+     */
+    static final class WindowedReader {
+        private final FileChannel channel;
+        private final long fileSize;
+        private final int windowSize;
+        private MappedByteBuffer buffer;
+        private long bufferStart;
+
+        WindowedReader(final FileChannel channel, final int windowSize) throws IOException {
+            this.channel = channel;
+            this.fileSize = channel.size();
+            this.windowSize = windowSize;
+            this.map(0);
+        }
+
+        private void map(final long start) throws IOException {
+            final long size = Math.min(this.windowSize, this.fileSize - start);
+            this.buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+            this.bufferStart = start;
+        }
+
+        private void ensure(final int bytes) throws IOException {
+            if (this.buffer.remaining() >= bytes) {
+                return;
+            }
+            final long position = this.bufferStart + this.buffer.position();
+            if (position + bytes > this.fileSize) {
+                throw new EOFException("snapshot file is truncated");
+            }
+            if (bytes > this.windowSize) {
+                throw new IOException("value of " + bytes + " bytes does not fit into the mapping window");
+            }
+            this.map(position);
+        }
+
+        public int getInt() throws IOException {
+            this.ensure(4);
+            return this.buffer.getInt();
+        }
+
+        public long getLong() throws IOException {
+            this.ensure(8);
+            return this.buffer.getLong();
+        }
+
+        public void get(final byte[] target, final int length) throws IOException {
+            this.ensure(length);
+            this.buffer.get(target, 0, length);
+        }
+    }
+
+}
@@ -6,6 +6,10 @@ public class EventTypes {
     public static final String FIXING_STARTED = "fixingStarted";
     public static final String FILE_CHANGED = "fileChanged";
     public static final String LAUNCH = "launch";
+    public static final String REMARK_CREATED = "remarkCreated";
+    public static final String REVIEW_ENDED = "reviewEnded";
+    public static final String RELEVANCE_FILTER_RESULT = "relevanceFilterResult";
+    public static final String ORIGINAL_TOUR_STRUCTURE = "originalTourStructure";
 
     private EventTypes() {
     }
@@ -0,0 +1,165 @@
+package de.setsoftware.cortLogAnalysis.model;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Reads a sensor data file with a pull parser in a single pass. The factories are expensive
+ * to create, therefore they are kept per thread.
+ */
+class EventXmlParser {
+
+    private static final ThreadLocal<XMLInputFactory> INPUT_FACTORY =
+            ThreadLocal.withInitial(XMLInputFactory::newInstance);
+
+    private static final ThreadLocal<DatatypeFactory> DATATYPE_FACTORY = new ThreadLocal<>();
+
+    private String owner;
+    private String runtime;
+    private String tool;
+    private String sensorDataType;
+    private String resource;
+    private final Map<String, String> properties = new LinkedHashMap<>();
+
+    private EventXmlParser() {
+    }
+
+    public static Event parse(final File file) throws IOException, XMLStreamException, DatatypeConfigurationException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            final XMLStreamReader r = INPUT_FACTORY.get().createXMLStreamReader(in);
+            try {
+                final EventXmlParser p = new EventXmlParser();
+                p.readDocument(r);
+                return new Event(
+                        p.required(p.owner, "Owner", file),
+                        parseTimestamp(p.required(p.runtime, "Runtime", file)),
+                        p.required(p.tool, "Tool", file),
+                        p.required(p.sensorDataType, "SensorDataType", file),
+                        p.required(p.resource, "Resource", file),
+                        p.properties);
+            } finally {
+                r.close();
+            }
+        }
+    }
+
+    private void readDocument(final XMLStreamReader r) throws XMLStreamException {
+        //the root element itself is not a candidate for the fields, just like with getElementsByTagName
+        int depth = 0;
+        String propertyKey = null;
+        String propertyValue = null;
+        int propertyDepth = -1;
+        while (r.hasNext()) {
+            final int type = r.next();
+            if (type == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+                if (depth == 1) {
+                    continue;
+                }
+                final String name = r.getLocalName();
+                if (propertyDepth >= 0) {
+                    if (name.equals("Key") && propertyKey == null) {
+                        propertyKey = readText(r);
+                        depth--;
+                    } else if (name.equals("Value") && propertyValue == null) {
+                        propertyValue = readText(r);
+                        depth--;
+                    }
+                    continue;
+                }
+                switch (name) {
+                case "Owner":
+                    this.owner = this.owner == null ? readText(r) : skip(r, this.owner);
+                    depth--;
+                    break;
+                case "Runtime":
+                    this.runtime = this.runtime == null ? readText(r) : skip(r, this.runtime);
+                    depth--;
+                    break;
+                case "Tool":
+                    this.tool = this.tool == null ? readText(r) : skip(r, this.tool);
+                    depth--;
+                    break;
+                case "SensorDataType":
+                    this.sensorDataType = this.sensorDataType == null ? readText(r) : skip(r, this.sensorDataType);
+                    depth--;
+                    break;
+                case "Resource":
+                    this.resource = this.resource == null ? readText(r) : skip(r, this.resource);
+                    depth--;
+                    break;
+                case "Property":
+                    propertyDepth = depth;
+                    propertyKey = null;
+                    propertyValue = null;
+                    break;
+                default:
+                    break;
+                }
+            } else if (type == XMLStreamConstants.END_ELEMENT) {
+                if (depth == propertyDepth) {
+                    this.properties.put(propertyKey, propertyValue);
+                    propertyDepth = -1;
+                }
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * Returns the text content of the current element and all its descendants and
+     * leaves the reader on the element's end tag.
+     */
+    private static String readText(final XMLStreamReader r) throws XMLStreamException {
+        final StringBuilder ret = new StringBuilder();
+        int depth = 1;
+        while (depth > 0) {
+            final int type = r.next();
+            if (type == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (type == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            } else if (type == XMLStreamConstants.CHARACTERS
+                    || type == XMLStreamConstants.CDATA
+                    || type == XMLStreamConstants.SPACE) {
+                ret.append(r.getTextCharacters(), r.getTextStart(), r.getTextLength());
+            }
+        }
+        return ret.toString();
+    }
+
+    private static String skip(final XMLStreamReader r, final String oldValue) throws XMLStreamException {
+        readText(r);
+        return oldValue;
+    }
+
+    private String required(final String value, final String elementName, final File file) throws XMLStreamException {
+        if (value == null) {
+            throw new XMLStreamException("element " + elementName + " missing in " + file);
+        }
+        return value;
+    }
+
+    public static Instant parseTimestamp(final String s) throws DatatypeConfigurationException {
+        DatatypeFactory f = DATATYPE_FACTORY.get();
+        if (f == null) {
+            f = DatatypeFactory.newInstance();
+            DATATYPE_FACTORY.set(f);
+        }
+        return f.newXMLGregorianCalendar(s).toGregorianCalendar().toInstant();
+    }
+
+}
@@ -2,47 +2,386 @@ package de.setsoftware.cortLogAnalysis.model;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Map.Entry;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import javax.xml.datatype.DatatypeConfigurationException;
-import javax.xml.parsers.ParserConfigurationException;
-
-import org.xml.sax.SAXException;
+import javax.xml.stream.XMLStreamException;
 
 public class Events implements Iterable<Event> {
 
+    private static final int MIN_EVENTS_PER_SPLIT_CHUNK = 10000;
+    private static final int FILES_PER_STREAMING_BATCH = 10000;
+
+    private static final File DEFAULT_DIRECTORY = new File("data\\Review");
+    private static final File DEFAULT_SNAPSHOT = new File("data\\Review.snapshot");
+    private static final File DEFAULT_MANIFEST = new File("data\\Review.manifest");
+
+    private static final Map<String, String> USERS_MAP = new HashMap<>();
+
+    static {
+        //Problem in frühen Versionen: manchmal User mit Großbuchstaben, manchmal mit Kleinbuchstaben
+        USERS_MAP.put("67f994533a5d976eed69aeae05e381bf6fa851e8", "0e0bd9224cae3992bdb822021f1daed06a2e0a72");
+        USERS_MAP.put("a91dcbb4df49d8bfe0a9930d7ff911a4292ca1f5", "2c859ac5409f6b5f6e256e413d66eec4394853b2");
+        USERS_MAP.put("7b21fdd90a6056168b4b04da4c8c387c4fbce2f5", "fdf943dd853f60e8f066b9ff1db365525dfa7714");
+        USERS_MAP.put("bc811258ae9f9fcb0494bb2785a876a59993024e", "7c4c910b08dc857dcb4cf5da2372858fb614226b");
+        USERS_MAP.put("df211ccdd94a63e0bcb9e6ae427a249484a49d60", "d00bb3f3b7c7b8815b6dcf237dd16aab9744eca8");
+        USERS_MAP.put("a454492e42fd9810e577ebee548c7e59bd883bca", "56594b38808d9c32652dc3b65e7cd14ed265277e");
+        USERS_MAP.put("3e76c24356d30b633982c828d9ab9b2144060f6b", "76e8daf43b51c7469b266d37aab6e3ed52f679bc");
+        USERS_MAP.put("8c1efea6bf9b8e3cc16fcc40576fdc7118cff0dd", "4c205cfc2e35806118b389e25fd798b1bf1a60ac");
+        USERS_MAP.put("363eb224f6ff8d3c5163a8805222acbf939a65b3", "9fcb8e351fa873324f5b111196609d0dfbd09a10");
+        USERS_MAP.put("fbce2c364a46f4c8162dfc1f0473ca824a2a2195", "f8a902b067d4344b687920f92c669bffad7b0e0e");
+        USERS_MAP.put("a7ae639ea556171c56cd06c61c2cfd09ccbee0a9", "033a22901425797f624e162970fc5183dfda59c4");
+        USERS_MAP.put("dcab2065d59495532bbce07c9af6c778f6afe178", "dc8d73b2300ecd72072137237d2c68dc0d3a7981");
+        USERS_MAP.put("23d8e0156062165ca3736e9f1e364d414e1d82d5", "62a3ad0fef668c4e2a220f6982de94942fbf1d1e");
+        USERS_MAP.put("da23614e02469a0d7c7bd1bdab5c9c474b1904dc", "06d945942aa26a61be18c3e22bf19bbca8dd2b5d");
+    }
+
     private final List<Event> events;
+    private SessionSummary summary;
+    private EventIndex index;
 
-    public Events(final List<Event> events) {
+    private Events(final List<Event> events) {
         this.events = events;
+    }
+
+    /**
+     * Creates an instance for the given events. The list is sorted by time.
+     */
+    public static Events of(final List<Event> events) {
         Collections.sort(events, Comparator.comparing(Event::getTimestamp));
+        return new Events(events);
+    }
+
+    /**
+     * Creates an instance for a list that is already sorted by time, without sorting it again.
+     */
+    static Events ofSorted(final List<Event> events) {
+        return new Events(events);
     }
 
     public static Events load(final File directory)
-            throws SAXException, IOException, ParserConfigurationException, DatatypeConfigurationException {
-        return new Events(getEventsIn(directory));
+            throws IOException, XMLStreamException, DatatypeConfigurationException {
+        return Events.of(getEventsIn(directory));
+    }
+
+    /**
+     * Loads the events like {@link #load(File)}, but parses the files on a fork-join pool with the
+     * given parallelism. Prints the achieved throughput to allow comparing different settings.
+     */
+    public static Events loadParallel(final File directory, final int parallelism)
+            throws IOException, XMLStreamException, DatatypeConfigurationException {
+        final long startTime = System.nanoTime();
+        final List<Event> events = ParallelEventLoader.loadTree(directory, parallelism);
+        final long duration = System.nanoTime() - startTime;
+        System.out.println(String.format("Parsed %d files in %d ms (%.0f files/s, parallelism %d)",
+                events.size(),
+                duration / 1000000,
+                events.size() * 1e9 / Math.max(duration, 1),
+                parallelism));
+        return Events.of(events);
+    }
+
+    /**
+     * Loads the events from the given snapshot file if it is up to date with the directory. Otherwise
+     * the events are loaded from the directory and the snapshot is (re)written.
+     */
+    public static Events loadCached(final File directory, final File snapshot)
+            throws IOException, XMLStreamException, DatatypeConfigurationException {
+        final long fingerprint = EventSnapshot.fingerprint(directory);
+        final Long snapshotFingerprint = EventSnapshot.readFingerprint(snapshot);
+        if (snapshotFingerprint != null && snapshotFingerprint == fingerprint) {
+            return Events.of(EventSnapshot.read(snapshot));
+        }
+        final Events ret = Events.loadParallel(directory, Runtime.getRuntime().availableProcessors());
+        EventSnapshot.write(snapshot, fingerprint, ret);
+        return ret;
+    }
+
+    /**
+     * Loads the events like {@link #loadCached(File, File)}, but when the snapshot is outdated, only the new
+     * or changed files are parsed and merged into the events from the snapshot. The manifest file keeps track of
+     * the files that are contained in the snapshot.
+     */
+    public static Events loadIncremental(final File directory, final File snapshot, final File manifestFile)
+            throws IOException, XMLStreamException, DatatypeConfigurationException {
+        final List<IngestManifest.FileEntry> files = IngestManifest.scan(directory);
+        final long fingerprint = EventSnapshot.fingerprint(files);
+        final Long snapshotFingerprint = EventSnapshot.readFingerprint(snapshot);
+        IngestManifest manifest = IngestManifest.read(manifestFile);
+        if (manifest != null && (snapshotFingerprint == null || manifest.getSnapshotFingerprint() != snapshotFingerprint)) {
+            //manifest does not belong to the snapshot, so it can't be used
+            manifest = null;
+        }
+        if (manifest != null && snapshotFingerprint == fingerprint) {
+            return Events.of(EventSnapshot.read(snapshot));
+        }
+
+        final long startTime = System.nanoTime();
+        final List<Event> oldEvents = manifest == null ? new ArrayList<>() : EventSnapshot.read(snapshot);
+        final int[] fileForOldEvent = new int[oldEvents.size()];
+        Arrays.fill(fileForOldEvent, -1);
+        final List<File> toParse = new ArrayList<>();
+        final List<Integer> fileForNewEvent = new ArrayList<>();
+        int unchangedCount = 0;
+        int changedCount = 0;
+        for (int i = 0; i < files.size(); i++) {
+            final int oldIndex = manifest == null ? -1 : manifest.getEventIndexIfUnchanged(files.get(i));
+            if (oldIndex >= 0 && oldIndex < oldEvents.size()) {
+                fileForOldEvent[oldIndex] = i;
+                unchangedCount++;
+            } else {
+                if (manifest != null && manifest.contains(files.get(i))) {
+                    changedCount++;
+                }
+                toParse.add(new File(directory, files.get(i).getPath()));
+                fileForNewEvent.add(i);
+            }
+        }
+        final List<Event> newEvents =
+                ParallelEventLoader.loadFiles(toParse, Runtime.getRuntime().availableProcessors());
+        final Integer[] newOrder = new Integer[newEvents.size()];
+        for (int i = 0; i < newOrder.length; i++) {
+            newOrder[i] = i;
+        }
+        Arrays.sort(newOrder, Comparator.comparing(i -> newEvents.get(i).getTimestamp()));
+
+        //merge the old events (already sorted) with the sorted new events and remember the new positions
+        final List<Event> merged = new ArrayList<>(unchangedCount + newEvents.size());
+        final int[] eventIndexForFile = new int[files.size()];
+        int oldPos = nextRetained(fileForOldEvent, 0);
+        int newPos = 0;
+        while (oldPos < oldEvents.size() || newPos < newOrder.length) {
+            if (newPos >= newOrder.length
+                    || (oldPos < oldEvents.size()
+                        && !oldEvents.get(oldPos).getTimestamp().isAfter(newEvents.get(newOrder[newPos]).getTimestamp()))) {
+                eventIndexForFile[fileForOldEvent[oldPos]] = merged.size();
+                merged.add(oldEvents.get(oldPos));
+                oldPos = nextRetained(fileForOldEvent, oldPos + 1);
+            } else {
+                eventIndexForFile[fileForNewEvent.get(newOrder[newPos])] = merged.size();
+                merged.add(newEvents.get(newOrder[newPos]));
+                newPos++;
+            }
+        }
+        final long duration = System.nanoTime() - startTime;
+        System.out.println(String.format("Incremental load: %d files unchanged, %d new, %d changed, %d removed (%d ms)",
+                unchangedCount,
+                newEvents.size() - changedCount,
+                changedCount,
+                manifest == null ? 0 : manifest.size() - unchangedCount - changedCount,
+                duration / 1000000));
+
+        EventSnapshot.write(snapshot, fingerprint, merged);
+        IngestManifest.write(manifestFile, fingerprint, files, eventIndexForFile);
+        return Events.of(merged);
+    }
+
+    private static int nextRetained(final int[] fileForOldEvent, final int start) {
+        int i = start;
+        while (i < fileForOldEvent.length && fileForOldEvent[i] < 0) {
+            i++;
+        }
+        return i;
     }
 
     public static Events loadDefault()
-            throws SAXException, IOException, ParserConfigurationException, DatatypeConfigurationException {
-        return Events.load(new File("data\\Review"));
+            throws IOException, XMLStreamException, DatatypeConfigurationException {
+        return Events.loadIncremental(DEFAULT_DIRECTORY, DEFAULT_SNAPSHOT, DEFAULT_MANIFEST);
+    }
+
+    /**
+     * Passes the default events to the consumer in time order, without keeping them all in memory.
+     * @see #forEachInTimeOrder(File, File, File, Consumer)
+     */
+    public static void forEachDefault(final Consumer<Event> consumer)
+            throws IOException, XMLStreamException, DatatypeConfigurationException {
+        forEachInTimeOrder(DEFAULT_DIRECTORY, DEFAULT_SNAPSHOT, DEFAULT_MANIFEST, consumer);
+    }
+
+    /**
+     * A time ordered sequence of events for the merge in
+     * {@link Events#forEachInTimeOrder(File, File, File, Consumer)}: the retained part of the old snapshot
+     * or a sorted run of newly parsed events.
+     */
+    private static final class MergeSource {
+        private final int number;
+        private final EventSnapshot.Reader reader;
+        //the index of the file for every event in the reader, -1 for events that are skipped
+        private final int[] files;
+        private int position = -1;
+        private Event head;
+        private int headFile;
+
+        public MergeSource(final int number, final EventSnapshot.Reader reader, final int[] files) {
+            this.number = number;
+            this.reader = reader;
+            this.files = files;
+        }
+
+        /**
+         * Moves to the next event that is not skipped. Returns false at the end.
+         */
+        public boolean advance() throws IOException {
+            while ((this.head = this.reader.next()) != null) {
+                this.position++;
+                if (this.files[this.position] >= 0) {
+                    this.headFile = this.files[this.position];
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Passes the events to the consumer in time order, without keeping them all in memory. When the snapshot
+     * is up to date, the events are read from it. Otherwise the snapshot is updated like in
+     * {@link #loadIncremental(File, File, File)}, but without materializing the events: the new or changed
+     * files are parsed once, in batches that are sorted by time and stored as temporary runs next to the snapshot.
+     * The runs are merged with the unchanged events of the old snapshot, and the merged events are passed to the
+     * consumer and written to the new snapshot and manifest at the same time.
+     */
+    public static void forEachInTimeOrder(
+            final File directory, final File snapshot, final File manifestFile, final Consumer<Event> consumer)
+            throws IOException, XMLStreamException, DatatypeConfigurationException {
+        final List<IngestManifest.FileEntry> files = IngestManifest.scan(directory);
+        final long fingerprint = EventSnapshot.fingerprint(files);
+        final Long snapshotFingerprint = EventSnapshot.readFingerprint(snapshot);
+        if (snapshotFingerprint != null && snapshotFingerprint == fingerprint) {
+            EventSnapshot.forEach(snapshot, consumer);
+            return;
+        }
+        IngestManifest manifest = IngestManifest.read(manifestFile);
+        if (manifest != null && (snapshotFingerprint == null || manifest.getSnapshotFingerprint() != snapshotFingerprint)) {
+            //manifest does not belong to the snapshot, so it can't be used
+            manifest = null;
+        }
+
+        final int parallelism = Runtime.getRuntime().availableProcessors();
+        final List<MergeSource> sources = new ArrayList<>();
+        final List<File> runFiles = new ArrayList<>();
+        try {
+            //the unchanged files keep their events from the old snapshot
+            final List<Integer> toParse = new ArrayList<>();
+            if (manifest != null) {
+                final EventSnapshot.Reader old = new EventSnapshot.Reader(snapshot);
+                final int[] fileForOldEvent = new int[old.size()];
+                Arrays.fill(fileForOldEvent, -1);
+                sources.add(new MergeSource(sources.size(), old, fileForOldEvent));
+                for (int i = 0; i < files.size(); i++) {
+                    final int oldIndex = manifest.getEventIndexIfUnchanged(files.get(i));
+                    if (oldIndex >= 0 && oldIndex < fileForOldEvent.length) {
+                        fileForOldEvent[oldIndex] = i;
+                    } else {
+                        toParse.add(i);
+                    }
+                }
+            } else {
+                for (int i = 0; i < files.size(); i++) {
+                    toParse.add(i);
+                }
+            }
+
+            //every file contains one event, the runs are sorted stably so that ties keep the file order
+            for (int start = 0; start < toParse.size(); start += FILES_PER_STREAMING_BATCH) {
+                final List<Integer> batchFiles =
+                        toParse.subList(start, Math.min(toParse.size(), start + FILES_PER_STREAMING_BATCH));
+                final List<File> batchPaths = new ArrayList<>(batchFiles.size());
+                for (final Integer i : batchFiles) {
+                    batchPaths.add(new File(directory, files.get(i).getPath()));
+                }
+                final List<Event> batch = ParallelEventLoader.loadFiles(batchPaths, parallelism);
+                final Integer[] order = new Integer[batch.size()];
+                for (int i = 0; i < order.length; i++) {
+                    order[i] = i;
+                }
+                Arrays.sort(order, Comparator.comparing(i -> batch.get(i).getTimestamp()));
+                final List<Event> sorted = new ArrayList<>(order.length);
+                final int[] fileForEvent = new int[order.length];
+                for (int i = 0; i < order.length; i++) {
+                    sorted.add(batch.get(order[i]));
+                    fileForEvent[i] = batchFiles.get(order[i]);
+                }
+                final File runFile = new File(snapshot.getPath() + ".run" + runFiles.size());
+                runFiles.add(runFile);
+                EventSnapshot.write(runFile, 0, sorted);
+                sources.add(new MergeSource(sources.size(), new EventSnapshot.Reader(runFile), fileForEvent));
+            }
+
+            //strings of events from removed files can remain in the dictionary, they are only stored once
+            final Map<String, Integer> dictionary = new LinkedHashMap<>();
+            int eventCount = 0;
+            for (final MergeSource source : sources) {
+                for (final String string : source.reader.getDictionary()) {
+                    if (!dictionary.containsKey(string)) {
+                        dictionary.put(string, dictionary.size());
+                    }
+                }
+            }
+            final PriorityQueue<MergeSource> heads = new PriorityQueue<>(Math.max(1, sources.size()),
+                    Comparator.comparing((MergeSource m) -> m.head.getTimestamp()).thenComparingInt(m -> m.number));
+            for (final MergeSource source : sources) {
+                for (final int file : source.files) {
+                    if (file >= 0) {
+                        eventCount++;
+                    }
+                }
+                if (source.advance()) {
+                    heads.add(source);
+                }
+            }
+
+            final int[] eventIndexForFile = new int[files.size()];
+            try (EventSnapshot.Writer w = new EventSnapshot.Writer(snapshot, fingerprint, dictionary, eventCount)) {
+                int written = 0;
+                while (!heads.isEmpty()) {
+                    final MergeSource source = heads.poll();
+                    eventIndexForFile[source.headFile] = written++;
+                    w.add(source.head);
+                    consumer.accept(source.head);
+                    if (source.advance()) {
+                        heads.add(source);
+                    }
+                }
+                for (final MergeSource source : sources) {
+                    source.reader.close();
+                }
+                w.commit();
+            }
+            IngestManifest.write(manifestFile, fingerprint, files, eventIndexForFile);
+        } finally {
+            for (final MergeSource source : sources) {
+                source.reader.close();
+            }
+            for (final File runFile : runFiles) {
+                Files.deleteIfExists(runFile.toPath());
+            }
+        }
     }
 
     private static List<Event> getEventsIn(final File directory)
-            throws SAXException, IOException, ParserConfigurationException, DatatypeConfigurationException {
+            throws IOException, XMLStreamException, DatatypeConfigurationException {
         final List<Event> ret = new ArrayList<>();
         for (final File child : directory.listFiles()) {
             if (child.isDirectory()) {
@@ -60,11 +399,11 @@ public class Events implements Iterable<Event> {
 
     public<T> List<Events> groupBy(final Function<Event, T> selector) {
         final Map<T, List<Event>> map = this.events.stream().collect(Collectors.groupingBy(selector));
-        return map.values().stream().map(l -> new Events(l)).collect(Collectors.toList());
+        return map.values().stream().map(Events::of).collect(Collectors.toList());
     }
 
     public Events filter(final Predicate<? super Event> predicate) {
-        return new Events(this.events.stream().filter(predicate).collect(Collectors.toList()));
+        return Events.of(this.events.stream().filter(predicate).collect(Collectors.toList()));
     }
 
     public<T extends Comparable<T>> T min(final Function<Event, T> selector) {
@@ -79,84 +418,240 @@ public class Events implements Iterable<Event> {
         return this.events.size();
     }
 
+    /**
+     * Returns the events with from &lt;= timestamp &lt; to. The result is determined by binary search and is a
+     * read-only view of this instance, so it is only valid as long as this instance is not modified.
+     */
+    public Events between(final Instant from, final Instant to) {
+        final int start = this.indexOfFirstNotBefore(from, 0);
+        final int end = Math.max(start, this.indexOfFirstNotBefore(to, start));
+        return this.range(start, end);
+    }
+
+    /**
+     * Returns a read-only view of the given range. Modifying the view, e.g. with {@link #normalizeUsers()},
+     * would change this instance without resetting its cached summary and index, so it is not allowed.
+     */
+    private Events range(final int start, final int end) {
+        return Events.ofSorted(Collections.unmodifiableList(this.events.subList(start, end)));
+    }
+
+    /**
+     * Returns the index of the first event at or after the given time, searching from the given index.
+     */
+    private int indexOfFirstNotBefore(final Instant time, final int fromIndex) {
+        int low = fromIndex;
+        int high = this.events.size();
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (this.events.get(mid).getTimestamp().isBefore(time)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the non-empty windows of the given size that start at multiples of the given size
+     * since the epoch, e.g. the hours that contain events.
+     */
+    public List<TimeWindow> tumblingWindows(final Duration size) {
+        return this.slidingWindows(size, size);
+    }
+
+    /**
+     * Returns the non-empty windows of the given size that start at multiples of the given step since the epoch.
+     * A step smaller than the size results in overlapping windows. The events of the windows are read-only
+     * views of this instance. The windows are determined in a single pass, without checking the empty windows
+     * between events that are far apart.
+     */
+    public List<TimeWindow> slidingWindows(final Duration size, final Duration step) {
+        final long sizeMillis = size.toMillis();
+        final long stepMillis = step.toMillis();
+        if (sizeMillis <= 0 || stepMillis <= 0) {
+            throw new IllegalArgumentException("size and step must be positive");
+        }
+        final List<TimeWindow> ret = new ArrayList<>();
+        int start = 0;
+        int end = 0;
+        long windowIndex = Long.MIN_VALUE;
+        while (start < this.events.size()) {
+            //the first window that ends after the next event
+            final long firstPossible = Math.floorDiv(
+                    this.events.get(start).getTimestamp().toEpochMilli() - sizeMillis, stepMillis) + 1;
+            windowIndex = Math.max(windowIndex, firstPossible);
+            final Instant windowStart = Instant.ofEpochMilli(windowIndex * stepMillis);
+            final Instant windowEnd = windowStart.plusMillis(sizeMillis);
+            while (start < this.events.size() && this.events.get(start).getTimestamp().isBefore(windowStart)) {
+                start++;
+            }
+            end = Math.max(end, start);
+            while (end < this.events.size() && this.events.get(end).getTimestamp().isBefore(windowEnd)) {
+                end++;
+            }
+            if (start < end) {
+                ret.add(new TimeWindow(windowStart, windowEnd, this.range(start, end)));
+            }
+            windowIndex++;
+        }
+        return ret;
+    }
+
     public Event getExample() {
         return this.events.get(0);
     }
 
     public void normalizeUsers() {
-        //Problem in frühen Versionen: manchmal User mit Großbuchstaben, manchmal mit Kleinbuchstaben
-        final Map<String, String> usersMap = new HashMap<>();
-        usersMap.put("67f994533a5d976eed69aeae05e381bf6fa851e8", "0e0bd9224cae3992bdb822021f1daed06a2e0a72");
-        usersMap.put("a91dcbb4df49d8bfe0a9930d7ff911a4292ca1f5", "2c859ac5409f6b5f6e256e413d66eec4394853b2");
-        usersMap.put("7b21fdd90a6056168b4b04da4c8c387c4fbce2f5", "fdf943dd853f60e8f066b9ff1db365525dfa7714");
-        usersMap.put("bc811258ae9f9fcb0494bb2785a876a59993024e", "7c4c910b08dc857dcb4cf5da2372858fb614226b");
-        usersMap.put("df211ccdd94a63e0bcb9e6ae427a249484a49d60", "d00bb3f3b7c7b8815b6dcf237dd16aab9744eca8");
-        usersMap.put("a454492e42fd9810e577ebee548c7e59bd883bca", "56594b38808d9c32652dc3b65e7cd14ed265277e");
-        usersMap.put("3e76c24356d30b633982c828d9ab9b2144060f6b", "76e8daf43b51c7469b266d37aab6e3ed52f679bc");
-        usersMap.put("8c1efea6bf9b8e3cc16fcc40576fdc7118cff0dd", "4c205cfc2e35806118b389e25fd798b1bf1a60ac");
-        usersMap.put("363eb224f6ff8d3c5163a8805222acbf939a65b3", "9fcb8e351fa873324f5b111196609d0dfbd09a10");
-        usersMap.put("fbce2c364a46f4c8162dfc1f0473ca824a2a2195", "f8a902b067d4344b687920f92c669bffad7b0e0e");
-        usersMap.put("a7ae639ea556171c56cd06c61c2cfd09ccbee0a9", "033a22901425797f624e162970fc5183dfda59c4");
-        usersMap.put("dcab2065d59495532bbce07c9af6c778f6afe178", "dc8d73b2300ecd72072137237d2c68dc0d3a7981");
-        usersMap.put("23d8e0156062165ca3736e9f1e364d414e1d82d5", "62a3ad0fef668c4e2a220f6982de94942fbf1d1e");
-        usersMap.put("da23614e02469a0d7c7bd1bdab5c9c474b1904dc", "06d945942aa26a61be18c3e22bf19bbca8dd2b5d");
-
         final ListIterator<Event> iter = this.events.listIterator();
         while (iter.hasNext()) {
             final Event event = iter.next();
-            final String translated = usersMap.get(event.getUser());
-            if (translated != null) {
-                iter.set(new Event(
-                        translated,
-                        event.getTimestamp(),
-                        event.getTool(),
-                        event.getDataType(),
-                        event.getResource(),
-                        event.getProperties()));
+            final Event normalized = normalizeUser(event);
+            if (normalized != event) {
+                iter.set(normalized);
             }
         }
+        this.summary = null;
+        this.index = null;
+    }
+
+    /**
+     * Returns the event with the normalized user, or the event itself if the user does not need to be normalized.
+     */
+    public static Event normalizeUser(final Event event) {
+        final String translated = USERS_MAP.get(event.getUser());
+        if (translated == null) {
+            return event;
+        }
+        return new Event(
+                translated,
+                event.getTimestamp(),
+                event.getTool(),
+                event.getDataType(),
+                event.getResource(),
+                event.getProperties());
     }
 
     public List<Events> splitIntoSessions() {
-        final List<Events> ret = new ArrayList<>();
-        for (final Events keyGroup : this.groupBy(Event::getResource)) {
-            for (final Events userGroup : keyGroup.groupBy(Event::getUser)) {
-                ret.add(userGroup);
+        return this.splitIntoSessions(false);
+    }
+
+    /**
+     * Splits the events into sessions, i.e. groups them by resource and user. This is done in a single pass, and
+     * as the events are already sorted, the sessions keep that order without being sorted again. The order of the
+     * sessions is the same as when first grouping by resource and then by user with {@link #groupBy(Function)}.
+     * When parallel is true, the events are split into chunks that are grouped concurrently.
+     */
+    public List<Events> splitIntoSessions(final boolean parallel) {
+        final int chunkCount = parallel
+                ? Math.min(ForkJoinPool.getCommonPoolParallelism() * 4, this.events.size() / MIN_EVENTS_PER_SPLIT_CHUNK)
+                : 1;
+        final Map<SessionKey, List<Event>> sessions;
+        if (chunkCount <= 1) {
+            sessions = this.groupChunkBySession(0, this.events.size());
+        } else {
+            final List<Map<SessionKey, List<Event>>> chunks = IntStream.range(0, chunkCount)
+                    .parallel()
+                    .mapToObj(i -> this.groupChunkBySession(
+                            (int) ((long) this.events.size() * i / chunkCount),
+                            (int) ((long) this.events.size() * (i + 1) / chunkCount)))
+                    .collect(Collectors.toList());
+            //merging in chunk order keeps the time order and the order of first occurrence
+            sessions = chunks.get(0);
+            for (int i = 1; i < chunks.size(); i++) {
+                for (final Entry<SessionKey, List<Event>> e : chunks.get(i).entrySet()) {
+                    final List<Event> existing = sessions.putIfAbsent(e.getKey(), e.getValue());
+                    if (existing != null) {
+                        existing.addAll(e.getValue());
+                    }
+                }
+            }
+        }
+
+        //hash maps keyed like in the nested grouping and filled with computeIfAbsent in order of first occurrence,
+        //  like groupingBy does, iterate in the same order
+        final Map<ResourceKey, Map<String, List<Event>>> byResource = new HashMap<>();
+        for (final Entry<SessionKey, List<Event>> e : sessions.entrySet()) {
+            byResource.computeIfAbsent(e.getKey().getResource(), k -> new HashMap<>())
+                .computeIfAbsent(e.getKey().getUser(), k -> e.getValue());
+        }
+        final List<Events> ret = new ArrayList<>(sessions.size());
+        for (final Map<String, List<Event>> byUser : byResource.values()) {
+            for (final List<Event> session : byUser.values()) {
+                ret.add(Events.ofSorted(session));
             }
         }
         return ret;
     }
 
+    private Map<SessionKey, List<Event>> groupChunkBySession(final int start, final int end) {
+        final Map<SessionKey, List<Event>> ret = new LinkedHashMap<>();
+        SessionKey lastKey = null;
+        List<Event> lastList = null;
+        for (int i = start; i < end; i++) {
+            final Event e = this.events.get(i);
+            //consecutive events often belong to the same session, so avoid the lookup in that case
+            if (lastKey == null || !lastKey.matches(e)) {
+                lastKey = SessionKey.of(e);
+                lastList = ret.computeIfAbsent(lastKey, k -> new ArrayList<>());
+            }
+            lastList.add(e);
+        }
+        return ret;
+    }
+
+    /**
+     * Returns the inverted indexes for these events. They are built in a single pass on first use and
+     * discarded when the events are changed.
+     */
+    public EventIndex getIndex() {
+        EventIndex ret = this.index;
+        if (ret == null) {
+            ret = EventIndex.build(this.events);
+            this.index = ret;
+        }
+        return ret;
+    }
+
+    /**
+     * Returns the aggregated data for these events. It is determined in a single pass on first use.
+     */
+    public SessionSummary getSummary() {
+        SessionSummary ret = this.summary;
+        if (ret == null) {
+            ret = SessionSummary.of(this.events);
+            this.summary = ret;
+        }
+        return ret;
+    }
+
     public Instant minTime() {
-        return this.min(Event::getTimestamp);
+        return this.getSummary().getMinTime();
     }
 
     public Instant maxTime() {
-        return this.max(Event::getTimestamp);
+        return this.getSummary().getMaxTime();
     }
 
     public boolean containsEventType(final String eventType) {
-        return this.events.stream().anyMatch(e -> e.getDataType().equals(eventType));
+        return this.getSummary().contains(eventType);
     }
 
     public long countEventType(final String eventType) {
-        return this.events.stream().filter(e -> e.getDataType().equals(eventType)).count();
+        return this.getSummary().getCount(eventType);
     }
 
     public String getTypeOfFirstSession() {
-        return this.getFirstSessionStartEvent().map(Event::getDataType).orElse("?");
-    }
-
-    private Optional<Event> getFirstSessionStartEvent() {
-        return this.events.stream().filter(Event::isSessionStart).findFirst();
+        return this.getSummary().getTypeOfFirstSession();
     }
 
     public int getRoundFromFirstSessionStart() {
-        return Integer.parseInt(this.getFirstSessionStartEvent().flatMap(e -> e.getProperty("round")).orElse("-1"));
+        return this.getSummary().getRoundFromFirstSessionStart();
     }
 
     public String getToolFromFirstEvent() {
-        return this.events.get(0).getTool();
+        return this.getSummary().getToolFromFirstEvent();
     }
 
     public void discardVersionsWithOldKeys() {
@@ -167,6 +662,8 @@ public class Events implements Iterable<Event> {
                 iter.remove();
             }
         }
+        this.summary = null;
+        this.index = null;
     }
 
     @Override
@@ -175,15 +672,10 @@ public class Events implements Iterable<Event> {
     }
 
     /**
-     * When the session key is generated, the real round number is not yet known, but when
-     * the [review|fixing]Started event is sent, it is. Therefore determine necessary corrections.
+     * @see SessionSummary#getCorrectedRound()
      */
     public int getCorrectedRound() {
-        if (this.containsEventType("reviewStarted") || this.containsEventType("fixingStarted")) {
-            return this.getRoundFromFirstSessionStart();
-        } else {
-            return this.getExample().getReviewRound();
-        }
+        return this.getSummary().getCorrectedRound();
     }
 
 }
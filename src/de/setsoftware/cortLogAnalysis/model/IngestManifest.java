@@ -0,0 +1,161 @@
+package de.setsoftware.cortLogAnalysis.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remembers which sensor files have already been ingested into a snapshot, and which event in the
+ * snapshot stems from which file. Used to parse only new or changed files when loading incrementally.
+ */
+class IngestManifest {
+
+    private static final int MAGIC = 0x43524d46;
+    private static final int VERSION = 1;
+
+    /**
+     * A sensor file, identified by its path relative to the root directory.
+     */
+    static final class FileEntry {
+        private final String path;
+        private final long size;
+        private final long lastModified;
+
+        public FileEntry(final String path, final long size, final long lastModified) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        public String getPath() {
+            return this.path;
+        }
+
+        public long getSize() {
+            return this.size;
+        }
+
+        public long getLastModified() {
+            return this.lastModified;
+        }
+
+        public boolean isSameVersion(final FileEntry other) {
+            return this.size == other.size && this.lastModified == other.lastModified;
+        }
+    }
+
+    private final long snapshotFingerprint;
+    private final Map<String, FileEntry> files;
+    private final Map<String, Integer> eventIndices;
+
+    private IngestManifest(final long snapshotFingerprint, final Map<String, FileEntry> files, final Map<String, Integer> eventIndices) {
+        this.snapshotFingerprint = snapshotFingerprint;
+        this.files = files;
+        this.eventIndices = eventIndices;
+    }
+
+    /**
+     * Lists the files in the given directory tree with their size and modification time.
+     */
+    public static List<FileEntry> scan(final File directory) throws IOException {
+        final Path root = directory.toPath();
+        final List<FileEntry> ret = new ArrayList<>();
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) {
+                ret.add(new FileEntry(
+                        root.relativize(file).toString(), attrs.size(), attrs.lastModifiedTime().toMillis()));
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return ret;
+    }
+
+    /**
+     * Reads the manifest from the given file. Returns null if it does not exist or is in an old format.
+     */
+    public static IngestManifest read(final File file) throws IOException {
+        if (!file.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            final long snapshotFingerprint = in.readLong();
+            final int count = in.readInt();
+            final Map<String, FileEntry> files = new HashMap<>(count * 2);
+            final Map<String, Integer> eventIndices = new HashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                final FileEntry entry = new FileEntry(in.readUTF(), in.readLong(), in.readLong());
+                files.put(entry.path, entry);
+                eventIndices.put(entry.path, in.readInt());
+            }
+            return new IngestManifest(snapshotFingerprint, files, eventIndices);
+        }
+    }
+
+    /**
+     * Writes a manifest for the given files. The event indices refer to the position of the
+     * file's event in the snapshot with the given fingerprint.
+     */
+    public static void write(
+            final File file, final long snapshotFingerprint, final List<FileEntry> files, final int[] eventIndices)
+        throws IOException {
+        final File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(snapshotFingerprint);
+            out.writeInt(files.size());
+            for (int i = 0; i < files.size(); i++) {
+                final FileEntry entry = files.get(i);
+                out.writeUTF(entry.path);
+                out.writeLong(entry.size);
+                out.writeLong(entry.lastModified);
+                out.writeInt(eventIndices[i]);
+            }
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public long getSnapshotFingerprint() {
+        return this.snapshotFingerprint;
+    }
+
+    /**
+     * Returns the index of the event for the given file in the snapshot, or -1 if the file has not been
+     * ingested yet or has changed since.
+     */
+    public int getEventIndexIfUnchanged(final FileEntry current) {
+        final FileEntry old = this.files.get(current.path);
+        if (old == null || !old.isSameVersion(current)) {
+            return -1;
+        }
+        return this.eventIndices.get(current.path);
+    }
+
+    public boolean contains(final FileEntry current) {
+        return this.files.containsKey(current.path);
+    }
+
+    public int size() {
+        return this.files.size();
+    }
+
+}
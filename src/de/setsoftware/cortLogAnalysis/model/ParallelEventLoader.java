@@ -0,0 +1,165 @@
+package de.setsoftware.cortLogAnalysis.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Loads the events in a directory tree on a fork-join pool. Subdirectories and larger
+ * chunks of files are processed as separate tasks, and the partial results are joined in
+ * the same order as in the sequential walk, so that the resulting list is identical.
+ */
+class ParallelEventLoader {
+
+    private static final int FILES_PER_TASK = 256;
+
+    /**
+     * Wraps the checked exceptions from parsing so that they can pass the fork-join framework.
+     */
+    private static final class LoadFailure extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public LoadFailure(final Exception cause) {
+            super(cause);
+        }
+    }
+
+    private static final class DirectoryTask extends RecursiveTask<List<Event>> {
+        private static final long serialVersionUID = 1L;
+
+        private final File directory;
+
+        public DirectoryTask(final File directory) {
+            this.directory = directory;
+        }
+
+        @Override
+        protected List<Event> compute() {
+            final List<RecursiveTask<List<Event>>> subtasks = new ArrayList<>();
+            List<File> fileChunk = new ArrayList<>();
+            for (final File child : this.directory.listFiles()) {
+                if (child.isDirectory()) {
+                    if (!fileChunk.isEmpty()) {
+                        subtasks.add(new FilesTask(fileChunk, 0, fileChunk.size()));
+                        fileChunk = new ArrayList<>();
+                    }
+                    subtasks.add(new DirectoryTask(child));
+                } else {
+                    fileChunk.add(child);
+                }
+            }
+            if (!fileChunk.isEmpty()) {
+                subtasks.add(new FilesTask(fileChunk, 0, fileChunk.size()));
+            }
+            return forkAndJoinInOrder(subtasks);
+        }
+    }
+
+    private static final class FilesTask extends RecursiveTask<List<Event>> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<File> files;
+        private final int start;
+        private final int end;
+
+        public FilesTask(final List<File> files, final int start, final int end) {
+            this.files = files;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected List<Event> compute() {
+            if (this.end - this.start > FILES_PER_TASK) {
+                final int mid = (this.start + this.end) >>> 1;
+                final List<RecursiveTask<List<Event>>> subtasks = new ArrayList<>();
+                subtasks.add(new FilesTask(this.files, this.start, mid));
+                subtasks.add(new FilesTask(this.files, mid, this.end));
+                return forkAndJoinInOrder(subtasks);
+            }
+            final List<Event> ret = new ArrayList<>(this.end - this.start);
+            for (int i = this.start; i < this.end; i++) {
+                try {
+                    ret.add(Event.load(this.files.get(i)));
+                } catch (IOException | XMLStreamException | DatatypeConfigurationException e) {
+                    throw new LoadFailure(e);
+                }
+            }
+            return ret;
+        }
+    }
+
+    private ParallelEventLoader() {
+    }
+
+    private static List<Event> forkAndJoinInOrder(final List<RecursiveTask<List<Event>>> subtasks) {
+        if (subtasks.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (subtasks.size() == 1) {
+            return subtasks.get(0).invoke();
+        }
+        for (int i = subtasks.size() - 1; i > 0; i--) {
+            subtasks.get(i).fork();
+        }
+        final List<Event> ret = new ArrayList<>(subtasks.get(0).invoke());
+        for (int i = 1; i < subtasks.size(); i++) {
+            ret.addAll(subtasks.get(i).join());
+        }
+        return ret;
+    }
+
+    /**
+     * Loads all events in the given directory tree, using a pool with the given parallelism.
+     */
+    public static List<Event> loadTree(final File directory, final int parallelism)
+            throws IOException, XMLStreamException, DatatypeConfigurationException {
+        return invoke(new DirectoryTask(directory), parallelism);
+    }
+
+    /**
+     * Loads the events from the given files, using a pool with the given parallelism.
+     * The result has the same order as the given list.
+     */
+    public static List<Event> loadFiles(final List<File> files, final int parallelism)
+            throws IOException, XMLStreamException, DatatypeConfigurationException {
+        if (files.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return invoke(new FilesTask(files, 0, files.size()), parallelism);
+    }
+
+    private static List<Event> invoke(final RecursiveTask<List<Event>> task, final int parallelism)
+            throws IOException, XMLStreamException, DatatypeConfigurationException {
+        final ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return pool.invoke(task);
+        } catch (final RuntimeException e) {
+            //the fork-join framework sometimes wraps the exception once more, so search the cause chain
+            Throwable cur = e;
+            while (cur != null && !(cur instanceof LoadFailure)) {
+                cur = cur.getCause();
+            }
+            if (cur == null) {
+                throw e;
+            }
+            final Throwable cause = cur.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof XMLStreamException) {
+                throw (XMLStreamException) cause;
+            } else {
+                throw (DatatypeConfigurationException) cause;
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+}
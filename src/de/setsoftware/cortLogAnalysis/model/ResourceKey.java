@@ -0,0 +1,93 @@
+package de.setsoftware.cortLogAnalysis.model;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The parsed resource of an event. In newer versions, the resource has the form
+ * "ticketKey,sessionType,round,sessionId", in older versions it is only the ticket key.
+ * There is only one instance per distinct resource, so that the parsing is done only once.
+ */
+public final class ResourceKey {
+
+    private static final ConcurrentHashMap<String, ResourceKey> INSTANCES = new ConcurrentHashMap<>();
+
+    private final String resource;
+    private final String ticketKey;
+    private final String sessionType;
+    private final Integer round;
+    private final String sessionId;
+
+    private ResourceKey(final String resource) {
+        final String[] parts = resource.split(",");
+        this.resource = resource;
+        this.ticketKey = Symbols.intern(parts[0]);
+        this.sessionType = parts.length > 1 ? Symbols.intern(parts[1]) : null;
+        this.round = parts.length > 2 ? parseRound(parts[2]) : null;
+        this.sessionId = parts.length > 3 ? Symbols.intern(parts[3]) : null;
+    }
+
+    private static Integer parseRound(final String s) {
+        try {
+            return Integer.parseInt(s);
+        } catch (final NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public static ResourceKey of(final String resource) {
+        final ResourceKey existing = INSTANCES.get(resource);
+        if (existing != null) {
+            return existing;
+        }
+        final ResourceKey created = new ResourceKey(resource);
+        final ResourceKey raced = INSTANCES.putIfAbsent(resource, created);
+        return raced == null ? created : raced;
+    }
+
+    public String getResource() {
+        return this.resource;
+    }
+
+    public boolean isNewKey() {
+        return this.resource.indexOf(',') >= 0;
+    }
+
+    public String getTicketKey() {
+        return this.ticketKey;
+    }
+
+    public String getSessionType() {
+        return this.sessionType;
+    }
+
+    public int getReviewRound() {
+        if (this.round == null) {
+            throw new IllegalStateException("resource without valid round: " + this.resource);
+        }
+        return this.round;
+    }
+
+    public String getSessionId() {
+        return this.sessionId;
+    }
+
+    @Override
+    public int hashCode() {
+        //same hash as the resource string, so that grouping by key results in the same order as grouping by resource
+        return this.resource.hashCode();
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (!(o instanceof ResourceKey)) {
+            return false;
+        }
+        return this.resource.equals(((ResourceKey) o).resource);
+    }
+
+    @Override
+    public String toString() {
+        return this.resource;
+    }
+
+}
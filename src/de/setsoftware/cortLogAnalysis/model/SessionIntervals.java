@@ -0,0 +1,97 @@
+package de.setsoftware.cortLogAnalysis.model;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Index of the time intervals of sessions (from the first to the last event), to determine the sessions
+ * that were active at a certain time or in a certain period. The sessions are sorted by start time and
+ * regarded as a balanced binary tree, where every node knows the maximal end time in its subtree
+ * (augmented interval tree), so that subtrees without matching sessions can be skipped.
+ */
+public final class SessionIntervals {
+
+    private final Events[] sessions;
+    private final Instant[] starts;
+    private final Instant[] ends;
+    private final Instant[] maxEnds;
+
+    private SessionIntervals(final List<Events> sortedSessions) {
+        final int count = sortedSessions.size();
+        this.sessions = sortedSessions.toArray(new Events[count]);
+        this.starts = new Instant[count];
+        this.ends = new Instant[count];
+        this.maxEnds = new Instant[count];
+        for (int i = 0; i < count; i++) {
+            this.starts[i] = this.sessions[i].minTime();
+            this.ends[i] = this.sessions[i].maxTime();
+        }
+        this.initMaxEnds(0, count);
+    }
+
+    public static SessionIntervals of(final Collection<Events> sessions) {
+        final List<Events> sorted = new ArrayList<>(sessions);
+        sorted.sort(Comparator.comparing(Events::minTime));
+        return new SessionIntervals(sorted);
+    }
+
+    private Instant initMaxEnds(final int low, final int high) {
+        if (low >= high) {
+            return null;
+        }
+        final int mid = (low + high) >>> 1;
+        Instant max = this.ends[mid];
+        max = later(max, this.initMaxEnds(low, mid));
+        max = later(max, this.initMaxEnds(mid + 1, high));
+        this.maxEnds[mid] = max;
+        return max;
+    }
+
+    private static Instant later(final Instant i1, final Instant i2) {
+        return i2 == null || i1.isAfter(i2) ? i1 : i2;
+    }
+
+    /**
+     * Returns the sessions with start &lt;= time &lt;= end, ordered by start time.
+     */
+    public List<Events> activeAt(final Instant time) {
+        return this.overlapping(time, time);
+    }
+
+    /**
+     * Returns the sessions that were active at some time in [from, to], ordered by start time.
+     */
+    public List<Events> overlapping(final Instant from, final Instant to) {
+        final List<Events> ret = new ArrayList<>();
+        this.collect(0, this.sessions.length, from, to, ret);
+        return ret;
+    }
+
+    private void collect(final int low, final int high, final Instant from, final Instant to, final List<Events> ret) {
+        if (low >= high) {
+            return;
+        }
+        final int mid = (low + high) >>> 1;
+        if (this.maxEnds[mid].isBefore(from)) {
+            //all sessions in this subtree have ended before
+            return;
+        }
+        this.collect(low, mid, from, to, ret);
+        if (this.starts[mid].isAfter(to)) {
+            //this session and all sessions in the right subtree start later
+            return;
+        }
+        if (!this.ends[mid].isBefore(from)) {
+            ret.add(this.sessions[mid]);
+        }
+        this.collect(mid + 1, high, from, to, ret);
+    }
+
+    public int size() {
+        return this.sessions.length;
+    }
+
+}
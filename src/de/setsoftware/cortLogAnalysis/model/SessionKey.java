@@ -0,0 +1,55 @@
+package de.setsoftware.cortLogAnalysis.model;
+
+/**
+ * Identifies a session: the events of one user for one resource.
+ */
+public final class SessionKey {
+
+    private final ResourceKey resource;
+    private final String user;
+
+    public SessionKey(final ResourceKey resource, final String user) {
+        this.resource = resource;
+        this.user = user;
+    }
+
+    public static SessionKey of(final Event e) {
+        return new SessionKey(e.getResourceKey(), e.getUser());
+    }
+
+    public ResourceKey getResource() {
+        return this.resource;
+    }
+
+    public String getUser() {
+        return this.user;
+    }
+
+    /**
+     * Returns true iff the given event belongs to this session. Resource keys and users are canonical
+     * instances, so this is an identity check.
+     */
+    public boolean matches(final Event e) {
+        return this.resource == e.getResourceKey() && this.user == e.getUser();
+    }
+
+    @Override
+    public int hashCode() {
+        return this.resource.hashCode() * 31 + this.user.hashCode();
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (!(o instanceof SessionKey)) {
+            return false;
+        }
+        final SessionKey k = (SessionKey) o;
+        return this.resource.equals(k.resource) && this.user.equals(k.user);
+    }
+
+    @Override
+    public String toString() {
+        return this.resource + ";" + this.user;
+    }
+
+}
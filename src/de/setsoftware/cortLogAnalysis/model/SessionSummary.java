@@ -0,0 +1,150 @@
+package de.setsoftware.cortLogAnalysis.model;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Aggregated data of a group of events (normally a session), determined in a single pass.
+ */
+public final class SessionSummary {
+
+    private final Event firstEvent;
+    private final Instant minTime;
+    private final Instant maxTime;
+    private final Map<String, Integer> eventTypeCounts;
+    private final Set<String> tools;
+    private final Event firstSessionStart;
+
+    private SessionSummary(
+            final Event firstEvent,
+            final Instant minTime,
+            final Instant maxTime,
+            final Map<String, Integer> eventTypeCounts,
+            final Set<String> tools,
+            final Event firstSessionStart) {
+        this.firstEvent = firstEvent;
+        this.minTime = minTime;
+        this.maxTime = maxTime;
+        this.eventTypeCounts = eventTypeCounts;
+        this.tools = tools;
+        this.firstSessionStart = firstSessionStart;
+    }
+
+    /**
+     * Collects the summary data from the events added one after the other.
+     */
+    public static final class Builder {
+        private Event firstEvent;
+        private Instant minTime;
+        private Instant maxTime;
+        private final Map<String, int[]> counts = new HashMap<>();
+        private final Set<String> tools = new LinkedHashSet<>();
+        private Event firstSessionStart;
+
+        public Builder add(final Event e) {
+            if (this.firstEvent == null) {
+                this.firstEvent = e;
+            }
+            if (this.minTime == null || e.getTimestamp().isBefore(this.minTime)) {
+                this.minTime = e.getTimestamp();
+            }
+            if (this.maxTime == null || e.getTimestamp().isAfter(this.maxTime)) {
+                this.maxTime = e.getTimestamp();
+            }
+            this.counts.computeIfAbsent(e.getDataType(), k -> new int[1])[0]++;
+            this.tools.add(e.getTool());
+            if (this.firstSessionStart == null && e.isSessionStart()) {
+                this.firstSessionStart = e;
+            }
+            return this;
+        }
+
+        public SessionSummary build() {
+            final Map<String, Integer> eventTypeCounts = new HashMap<>(this.counts.size() * 2);
+            for (final Map.Entry<String, int[]> e : this.counts.entrySet()) {
+                eventTypeCounts.put(e.getKey(), e.getValue()[0]);
+            }
+            return new SessionSummary(
+                    this.firstEvent,
+                    this.minTime,
+                    this.maxTime,
+                    Collections.unmodifiableMap(eventTypeCounts),
+                    Collections.unmodifiableSet(new LinkedHashSet<>(this.tools)),
+                    this.firstSessionStart);
+        }
+    }
+
+    static SessionSummary of(final Iterable<Event> events) {
+        final Builder b = new Builder();
+        for (final Event e : events) {
+            b.add(e);
+        }
+        return b.build();
+    }
+
+    /**
+     * Returns the first event, which is used as an example for the session's user and resource.
+     */
+    public Event getFirstEvent() {
+        return this.firstEvent;
+    }
+
+    public Instant getMinTime() {
+        return this.minTime;
+    }
+
+    public Instant getMaxTime() {
+        return this.maxTime;
+    }
+
+    public int getCount(final String eventType) {
+        final Integer count = this.eventTypeCounts.get(eventType);
+        return count == null ? 0 : count;
+    }
+
+    public boolean contains(final String eventType) {
+        return this.eventTypeCounts.containsKey(eventType);
+    }
+
+    public Map<String, Integer> getEventTypeCounts() {
+        return this.eventTypeCounts;
+    }
+
+    public Set<String> getTools() {
+        return this.tools;
+    }
+
+    public String getToolFromFirstEvent() {
+        return this.firstEvent.getTool();
+    }
+
+    public Event getFirstSessionStart() {
+        return this.firstSessionStart;
+    }
+
+    public String getTypeOfFirstSession() {
+        return this.firstSessionStart == null ? "?" : this.firstSessionStart.getDataType();
+    }
+
+    public int getRoundFromFirstSessionStart() {
+        final String round = this.firstSessionStart == null ? null : this.firstSessionStart.getProperty("round").orElse(null);
+        return Integer.parseInt(round == null ? "-1" : round);
+    }
+
+    /**
+     * When the session key is generated, the real round number is not yet known, but when
+     * the [review|fixing]Started event is sent, it is. Therefore determine necessary corrections.
+     */
+    public int getCorrectedRound() {
+        if (this.firstSessionStart != null) {
+            return this.getRoundFromFirstSessionStart();
+        } else {
+            return this.firstEvent.getReviewRound();
+        }
+    }
+
+}
@@ -0,0 +1,60 @@
+package de.setsoftware.cortLogAnalysis.model;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared symbol table for the strings in the events. There are only few distinct users, tools,
+ * event types and property keys, so every distinct value is stored only once and values can be
+ * compared by identity.
+ */
+public final class Symbols {
+
+    /**
+     * Longer property values are mostly unique (e.g. file lists), so interning them would only cost memory.
+     */
+    private static final int MAX_INTERNED_VALUE_LENGTH = 64;
+
+    private static final ConcurrentHashMap<String, String> TABLE = new ConcurrentHashMap<>();
+
+    static {
+        //register the constants first, so that they are the canonical instances
+        intern(EventTypes.REVIEW_STARTED);
+        intern(EventTypes.FIXING_STARTED);
+        intern(EventTypes.FILE_CHANGED);
+        intern(EventTypes.LAUNCH);
+        intern(EventTypes.REMARK_CREATED);
+        intern(EventTypes.REVIEW_ENDED);
+        intern(EventTypes.RELEVANCE_FILTER_RESULT);
+        intern(EventTypes.ORIGINAL_TOUR_STRUCTURE);
+    }
+
+    private Symbols() {
+    }
+
+    /**
+     * Returns the canonical instance for the given string.
+     */
+    public static String intern(final String s) {
+        if (s == null) {
+            return null;
+        }
+        final String existing = TABLE.putIfAbsent(s, s);
+        return existing == null ? s : existing;
+    }
+
+    /**
+     * Returns the canonical instance for the given property value, if it is short enough to be
+     * a likely duplicate. Otherwise returns the value unchanged.
+     */
+    public static String internValue(final String s) {
+        if (s == null || s.length() > MAX_INTERNED_VALUE_LENGTH) {
+            return s;
+        }
+        return intern(s);
+    }
+
+    public static int size() {
+        return TABLE.size();
+    }
+
+}
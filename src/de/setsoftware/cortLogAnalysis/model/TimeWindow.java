@@ -0,0 +1,40 @@
+package de.setsoftware.cortLogAnalysis.model;
+
+import java.time.Instant;
+
+/**
+ * A time window [start, end) together with the events in it.
+ */
+public final class TimeWindow {
+
+    private final Instant start;
+    private final Instant end;
+    private final Events events;
+
+    TimeWindow(final Instant start, final Instant end, final Events events) {
+        this.start = start;
+        this.end = end;
+        this.events = events;
+    }
+
+    public Instant getStart() {
+        return this.start;
+    }
+
+    public Instant getEnd() {
+        return this.end;
+    }
+
+    /**
+     * Returns the events in the window. This is a view of the events the window was created from.
+     */
+    public Events getEvents() {
+        return this.events;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + this.start + ", " + this.end + "): " + this.events.size() + " events";
+    }
+
+}
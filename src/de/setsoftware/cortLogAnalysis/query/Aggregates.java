@@ -0,0 +1,91 @@
+package de.setsoftware.cortLogAnalysis.query;
+
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collector;
+
+/**
+ * Aggregate functions for {@link Query}. Like in SQL, null values are ignored, and the result of sum, min and
+ * max is null when there are no values. The aggregates are collectors, so that groups can be computed in
+ * parallel and combined afterwards.
+ */
+public final class Aggregates {
+
+    private Aggregates() {
+    }
+
+    /**
+     * COUNT(*).
+     */
+    public static <T> Collector<T, ?, Object> count() {
+        return countIf(x -> true);
+    }
+
+    /**
+     * The number of rows that satisfy the condition, e.g. the events of a certain type.
+     */
+    public static <T> Collector<T, ?, Object> countIf(final Predicate<? super T> condition) {
+        return Collector.<T, long[], Object>of(
+                () -> new long[1],
+                (a, t) -> {
+                    if (condition.test(t)) {
+                        a[0]++;
+                    }
+                },
+                (a, b) -> {
+                    a[0] += b[0];
+                    return a;
+                },
+                a -> a[0]);
+    }
+
+    public static <T> Collector<T, ?, Object> sum(final Function<? super T, ? extends Number> value) {
+        return Collector.<T, long[], Object>of(
+                //sum and number of non-null values
+                () -> new long[2],
+                (a, t) -> {
+                    final Number n = value.apply(t);
+                    if (n != null) {
+                        a[0] += n.longValue();
+                        a[1]++;
+                    }
+                },
+                (a, b) -> {
+                    a[0] += b[0];
+                    a[1] += b[1];
+                    return a;
+                },
+                a -> a[1] == 0 ? null : (Object) a[0]);
+    }
+
+    public static <T, V extends Comparable<? super V>> Collector<T, ?, Object> max(
+            final Function<? super T, V> value) {
+        return extreme(value, 1);
+    }
+
+    public static <T, V extends Comparable<? super V>> Collector<T, ?, Object> min(
+            final Function<? super T, V> value) {
+        return extreme(value, -1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T, V extends Comparable<? super V>> Collector<T, ?, Object> extreme(
+            final Function<? super T, V> value, final int sign) {
+        return Collector.<T, Object[], Object>of(
+                () -> new Object[1],
+                (a, t) -> {
+                    final V v = value.apply(t);
+                    if (v != null && (a[0] == null || v.compareTo((V) a[0]) * sign > 0)) {
+                        a[0] = v;
+                    }
+                },
+                (a, b) -> {
+                    if (b[0] != null && (a[0] == null || ((V) b[0]).compareTo((V) a[0]) * sign > 0)) {
+                        a[0] = b[0];
+                    }
+                    return a;
+                },
+                a -> a[0]);
+    }
+
+}
@@ -0,0 +1,27 @@
+package de.setsoftware.cortLogAnalysis.query;
+
+import java.util.function.Predicate;
+
+import de.setsoftware.cortLogAnalysis.model.Event;
+
+/**
+ * Frequently used conditions on events for {@link Query#where(Predicate)}.
+ */
+public final class EventConditions {
+
+    private EventConditions() {
+    }
+
+    public static Predicate<Event> dataType(final String dataType) {
+        return e -> e.getDataType().equals(dataType);
+    }
+
+    public static Predicate<Event> hasProperty(final String name) {
+        return e -> e.getProperties().containsKey(name);
+    }
+
+    public static Predicate<Event> property(final String name, final String value) {
+        return e -> value.equals(e.getProperties().get(name));
+    }
+
+}
@@ -0,0 +1,263 @@
+package de.setsoftware.cortLogAnalysis.query;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A grouped aggregation over rows held in memory, similar to a SQL query of the form
+ * "SELECT keys, aggregates, derived values FROM rows WHERE conditions GROUP BY keys ORDER BY keys".
+ * The rows are normally events or per session data, so that the analyses of the views can be done
+ * without exporting to a database. The grouping can be done in parallel.
+ */
+public final class Query<T> {
+
+    /**
+     * Read access to the values of a result row, for computing derived values.
+     */
+    public static final class ResultRow {
+        private final Map<String, Integer> indices;
+        private final Object[] values;
+
+        private ResultRow(final Map<String, Integer> indices, final Object[] values) {
+            this.indices = indices;
+            this.values = values;
+        }
+
+        public Object get(final String column) {
+            final Integer index = this.indices.get(column);
+            if (index == null) {
+                throw new IllegalArgumentException("unknown column " + column);
+            }
+            return this.values[index];
+        }
+
+        /**
+         * Returns the value of the column as a number, or null if it is null.
+         */
+        public Number getNumber(final String column) {
+            return (Number) this.get(column);
+        }
+    }
+
+    private static final Comparator<List<Object>> KEY_ORDER = Query::compareKeys;
+
+    private static final int DIV_PRECISION_INCREMENT = 4;
+    private static final int INTERNAL_DIVISION_SCALE = 9;
+
+    private final Collection<T> rows;
+    private final List<Predicate<? super T>> conditions = new ArrayList<>();
+    private final List<String> keyNames = new ArrayList<>();
+    private final List<Function<? super T, ?>> keys = new ArrayList<>();
+    private final List<String> aggregateNames = new ArrayList<>();
+    private final List<Collector<? super T, Object, Object>> aggregates = new ArrayList<>();
+    private final List<String> derivedNames = new ArrayList<>();
+    private final List<Function<ResultRow, Object>> derived = new ArrayList<>();
+
+    private Query(final Collection<T> rows) {
+        this.rows = rows;
+    }
+
+    public static <T> Query<T> from(final Collection<T> rows) {
+        return new Query<>(rows);
+    }
+
+    public static <T> Query<T> from(final Iterable<T> rows) {
+        final List<T> list = new ArrayList<>();
+        for (final T row : rows) {
+            list.add(row);
+        }
+        return new Query<>(list);
+    }
+
+    /**
+     * Only uses the rows that satisfy the given condition. Multiple conditions are combined with "and".
+     */
+    public Query<T> where(final Predicate<? super T> condition) {
+        this.conditions.add(condition);
+        return this;
+    }
+
+    public Query<T> groupBy(final String name, final Function<? super T, ?> key) {
+        this.keyNames.add(name);
+        this.keys.add(key);
+        return this;
+    }
+
+    /**
+     * Adds an aggregated column, normally created with one of the methods in {@link Aggregates}.
+     */
+    @SuppressWarnings("unchecked")
+    public Query<T> aggregate(final String name, final Collector<? super T, ?, Object> aggregate) {
+        this.aggregateNames.add(name);
+        this.aggregates.add((Collector<? super T, Object, Object>) aggregate);
+        return this;
+    }
+
+    /**
+     * Adds a column that is computed from the other columns of the result row, e.g. a ratio of two
+     * aggregates. Derived values can use the derived values that were added before them.
+     */
+    public Query<T> derive(final String name, final Function<ResultRow, Object> value) {
+        this.derivedNames.add(name);
+        this.derived.add(value);
+        return this;
+    }
+
+    /**
+     * Returns numerator / denominator * factor for integer operands with the result of MySQL: a DECIMAL
+     * with 4 decimal places (div_precision_increment), rounded half up. Returns null if one of the operands
+     * is null or the denominator is 0.
+     */
+    public static BigDecimal ratio(final Number numerator, final Number denominator, final long factor) {
+        final BigDecimal ret = unroundedRatio(numerator, denominator, factor);
+        return ret == null ? null : ret.setScale(DIV_PRECISION_INCREMENT, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Returns FLOOR(numerator / denominator * factor) for integer operands like MySQL, or null if one of the
+     * operands is null or the denominator is 0.
+     */
+    public static Long floorOfRatio(final Number numerator, final Number denominator, final long factor) {
+        final BigDecimal ret = unroundedRatio(numerator, denominator, factor);
+        return ret == null ? null : ret.setScale(0, RoundingMode.FLOOR).longValueExact();
+    }
+
+    /**
+     * MySQL truncates the quotient to whole groups of 9 decimal places and only rounds the final result
+     * to the scale of the column, so the intermediate value has to be computed the same way.
+     */
+    private static BigDecimal unroundedRatio(final Number numerator, final Number denominator, final long factor) {
+        if (numerator == null || denominator == null || denominator.longValue() == 0) {
+            return null;
+        }
+        return BigDecimal.valueOf(numerator.longValue())
+                .divide(BigDecimal.valueOf(denominator.longValue()), INTERNAL_DIVISION_SCALE, RoundingMode.DOWN)
+                .multiply(BigDecimal.valueOf(factor));
+    }
+
+    public ResultTable execute(final boolean parallel) {
+        Stream<T> stream = parallel ? this.rows.parallelStream() : this.rows.stream();
+        for (final Predicate<? super T> condition : this.conditions) {
+            stream = stream.filter(condition);
+        }
+        final Map<List<Object>, Object[]> groups = stream.collect(Collectors.groupingBy(
+                this::keyOf,
+                () -> new TreeMap<>(KEY_ORDER),
+                this.combinedAggregates()));
+
+        final List<String> columnNames = new ArrayList<>();
+        columnNames.addAll(this.keyNames);
+        columnNames.addAll(this.aggregateNames);
+        columnNames.addAll(this.derivedNames);
+        final Map<String, Integer> indices = new HashMap<>();
+        for (int i = 0; i < columnNames.size(); i++) {
+            indices.put(columnNames.get(i), i);
+        }
+
+        final List<Object[]> result = new ArrayList<>(groups.size());
+        for (final Map.Entry<List<Object>, Object[]> group : groups.entrySet()) {
+            final Object[] row = new Object[columnNames.size()];
+            int index = 0;
+            for (final Object key : group.getKey()) {
+                row[index++] = key;
+            }
+            for (final Object aggregate : group.getValue()) {
+                row[index++] = aggregate;
+            }
+            final ResultRow rowView = new ResultRow(indices, row);
+            for (final Function<ResultRow, Object> d : this.derived) {
+                row[index++] = d.apply(rowView);
+            }
+            result.add(row);
+        }
+        return new ResultTable(columnNames, result);
+    }
+
+    private List<Object> keyOf(final T row) {
+        final Object[] key = new Object[this.keys.size()];
+        for (int i = 0; i < key.length; i++) {
+            key[i] = this.keys.get(i).apply(row);
+        }
+        return Arrays.asList(key);
+    }
+
+    /**
+     * Combines the aggregates into one collector that computes an array with all results.
+     */
+    private Collector<T, Object[], Object[]> combinedAggregates() {
+        final int count = this.aggregates.size();
+        final List<Supplier<Object>> suppliers = new ArrayList<>();
+        final List<BiConsumer<Object, ? super T>> accumulators = new ArrayList<>();
+        final List<BinaryOperator<Object>> combiners = new ArrayList<>();
+        final List<Function<Object, Object>> finishers = new ArrayList<>();
+        for (final Collector<? super T, Object, Object> aggregate : this.aggregates) {
+            suppliers.add(aggregate.supplier());
+            accumulators.add(aggregate.accumulator());
+            combiners.add(aggregate.combiner());
+            finishers.add(aggregate.finisher());
+        }
+        return Collector.of(
+                () -> {
+                    final Object[] a = new Object[count];
+                    for (int i = 0; i < count; i++) {
+                        a[i] = suppliers.get(i).get();
+                    }
+                    return a;
+                },
+                (a, t) -> {
+                    for (int i = 0; i < count; i++) {
+                        accumulators.get(i).accept(a[i], t);
+                    }
+                },
+                (a, b) -> {
+                    for (int i = 0; i < count; i++) {
+                        a[i] = combiners.get(i).apply(a[i], b[i]);
+                    }
+                    return a;
+                },
+                a -> {
+                    final Object[] result = new Object[count];
+                    for (int i = 0; i < count; i++) {
+                        result[i] = finishers.get(i).apply(a[i]);
+                    }
+                    return result;
+                });
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compareKeys(final List<Object> k1, final List<Object> k2) {
+        for (int i = 0; i < k1.size(); i++) {
+            final Object v1 = k1.get(i);
+            final Object v2 = k2.get(i);
+            final int cmp;
+            if (v1 == null || v2 == null) {
+                cmp = v1 == null ? (v2 == null ? 0 : -1) : 1;
+            } else if (v1 instanceof Comparable && v1.getClass() == v2.getClass()) {
+                cmp = ((Comparable) v1).compareTo(v2);
+            } else {
+                cmp = v1.toString().compareTo(v2.toString());
+            }
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return 0;
+    }
+
+}
@@ -0,0 +1,94 @@
+package de.setsoftware.cortLogAnalysis.query;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The result of a {@link Query}: named columns and the rows, ordered by the group keys.
+ */
+public final class ResultTable {
+
+    private final List<String> columnNames;
+    private final List<Object[]> rows;
+
+    ResultTable(final List<String> columnNames, final List<Object[]> rows) {
+        this.columnNames = Collections.unmodifiableList(columnNames);
+        this.rows = Collections.unmodifiableList(rows);
+    }
+
+    public List<String> getColumnNames() {
+        return this.columnNames;
+    }
+
+    public List<Object[]> getRows() {
+        return this.rows;
+    }
+
+    public int size() {
+        return this.rows.size();
+    }
+
+    /**
+     * Writes the table as CSV with ";" as separator (like the other CSV files used in the analyses) and a
+     * header line. Null values are written as empty fields.
+     */
+    public void writeCsv(final File file) throws IOException {
+        try (Writer w = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            this.writeCsv(w);
+        }
+    }
+
+    public void writeCsv(final Writer w) throws IOException {
+        final StringBuilder line = new StringBuilder();
+        for (int i = 0; i < this.columnNames.size(); i++) {
+            if (i > 0) {
+                line.append(';');
+            }
+            appendField(line, this.columnNames.get(i));
+        }
+        line.append('\n');
+        w.write(line.toString());
+        for (final Object[] row : this.rows) {
+            line.setLength(0);
+            for (int i = 0; i < row.length; i++) {
+                if (i > 0) {
+                    line.append(';');
+                }
+                appendField(line, row[i]);
+            }
+            line.append('\n');
+            w.write(line.toString());
+        }
+    }
+
+    private static void appendField(final StringBuilder b, final Object value) {
+        if (value == null) {
+            return;
+        }
+        final String s = value instanceof Instant
+                ? value.toString().replace('T', ' ').replace("Z", "")
+                : value.toString();
+        if (s.indexOf(';') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0 && s.indexOf('\r') < 0) {
+            b.append(s);
+            return;
+        }
+        b.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            final char ch = s.charAt(i);
+            if (ch == '"') {
+                b.append('"');
+            }
+            b.append(ch);
+        }
+        b.append('"');
+    }
+
+}
@@ -1,53 +1,197 @@
 package de.setsoftware.furtherAnalysis.navigation;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.File;
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class AnalyzeNavigationTypes {
 
-    public static void main(String[] args) throws IOException {
-        final SvnChangesets svn = SvnChangesets.load();
+    /**
+     * The columns of a line of the navigation data that are used.
+     */
+    private static final class NavigationRow {
+        private final String ticket;
+        private final String user;
+        private final String session;
+        private final String eventType;
+        private final String files;
+        private final String jumpType;
 
-        final BufferedReader r = new BufferedReader(new FileReader("C:\\Users\\ich\\Documents\\alberto_change_ordering\\cort_navigation_data\\rawNavigation.csv"));
-        final String header = r.readLine();
-        String line;
-        String currentSessionKey = "";
-        NavigationSession.printHeader();
+        public NavigationRow(MappedCsvReader r) {
+            this.ticket = r.getQuotedField(0);
+            this.user = r.getQuotedField(1);
+            this.session = r.getQuotedField(3);
+            this.eventType = r.getQuotedField(5);
+            this.files = r.getQuotedField(6);
+            this.jumpType = r.getQuotedField(7);
+        }
+
+        public boolean isSameSession(NavigationRow other) {
+            return other != null && this.session.equals(other.session) && this.user.equals(other.user);
+        }
+    }
+
+    /**
+     * Takes the results of the workers in input order and prints them. When a worker failed, the
+     * remaining results are only drained, so that the reader does not block.
+     */
+    private static final class OrderedOutput implements Runnable {
+        private static final Future<String> END = CompletableFuture.completedFuture(null);
+
+        private final BlockingQueue<Future<String>> results;
+        private volatile Throwable error;
+
+        public OrderedOutput(int capacity) {
+            this.results = new ArrayBlockingQueue<>(capacity);
+        }
+
+        public void add(Future<String> result) throws InterruptedException {
+            this.results.put(result);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    final Future<String> result = this.results.take();
+                    if (result == END) {
+                        return;
+                    }
+                    if (this.error != null) {
+                        result.cancel(false);
+                        continue;
+                    }
+                    try {
+                        System.out.println(result.get());
+                    } catch (final ExecutionException e) {
+                        this.error = e.getCause();
+                    }
+                }
+            } catch (final InterruptedException e) {
+                this.error = e;
+            }
+        }
+
+        public boolean hasFailed() {
+            return this.error != null;
+        }
+
+        public void rethrowError() throws IOException {
+            final Throwable e = this.error;
+            if (e == null) {
+                return;
+            }
+            if (e instanceof RuntimeException) {
+                throw (RuntimeException) e;
+            }
+            if (e instanceof Error) {
+                throw (Error) e;
+            }
+            throw new IOException("analysis failed", e);
+        }
+    }
+
+    /**
+     * Analyzes the navigation data. With "--threads=n" (n &gt; 1), the input is read on the main thread
+     * and split into sessions, the sessions are analyzed by n worker threads, and the results are printed
+     * by a further thread in input order, so that the output is the same as without the option.
+     */
+    public static void main(String[] args) throws Exception {
+        final int threads = Integer.parseInt(option(args, "--threads=", "1"));
+        try (SvnChangesets svn = SvnChangesets.load();
+                MappedCsvReader r = new MappedCsvReader(
+                        new File("C:\\Users\\ich\\Documents\\alberto_change_ordering\\cort_navigation_data\\rawNavigation.csv"),
+                        Charset.defaultCharset())) {
+            //skip the header
+            r.nextLine();
+            NavigationSession.printHeader();
+            if (threads > 1) {
+                analyzePipelined(svn, r, threads);
+            } else {
+                analyze(svn, r);
+            }
+        }
+    }
+
+    private static String option(String[] args, String prefix, String defaultValue) {
+        for (final String arg : args) {
+            if (arg.startsWith(prefix)) {
+                return arg.substring(prefix.length());
+            }
+        }
+        return defaultValue;
+    }
+
+    private static void analyze(SvnChangesets svn, MappedCsvReader r) throws IOException {
+        NavigationRow previous = null;
         NavigationSession curSession = null;
-        while ((line = r.readLine()) != null) {
-            final String[] parts = line.split(";");
-            final String ticket = stripAndCheckQuotes(parts[0]);
-            final String user = stripAndCheckQuotes(parts[1]);
-            final String session = stripAndCheckQuotes(parts[3]);
-            final String eventType = stripAndCheckQuotes(parts[5]);
-            final String files = stripAndCheckQuotes(parts[6]);
-            final String jumpType = stripAndCheckQuotes(parts[7]);
-
-            final String key = session + ";" + user;
-            if (!currentSessionKey.equals(key)) {
+        while (r.nextLine()) {
+            final NavigationRow row = new NavigationRow(r);
+            if (!row.isSameSession(previous)) {
                 if (curSession != null) {
                     curSession.print();
                 }
-                currentSessionKey = key;
-                curSession = new NavigationSession(svn, ticket, user, session);
+                curSession = new NavigationSession(svn, row.ticket, row.user, row.session);
             }
-            curSession.addEvent(eventType, files, jumpType);
+            curSession.addEvent(row.eventType, row.files, row.jumpType);
+            previous = row;
         }
         if (curSession != null) {
             curSession.print();
         }
-        r.close();
     }
 
-    private static String stripAndCheckQuotes(String string) {
-        if (!string.startsWith("\"")) {
-            throw new RuntimeException("parse error: " + string);
-        }
-        if (!string.endsWith("\"")) {
-            throw new RuntimeException("parse error: " + string);
+    private static void analyzePipelined(SvnChangesets svn, MappedCsvReader r, int threads) throws Exception {
+        final ExecutorService workers = Executors.newFixedThreadPool(threads);
+        //the bounded queue limits the number of sessions in memory
+        final OrderedOutput output = new OrderedOutput(threads * 4);
+        final Thread writer = new Thread(output, "AnalyzeNavigationTypes-output");
+        writer.start();
+        try {
+            NavigationRow previous = null;
+            List<NavigationRow> curSession = new ArrayList<>();
+            while (!output.hasFailed() && r.nextLine()) {
+                final NavigationRow row = new NavigationRow(r);
+                if (!row.isSameSession(previous)) {
+                    if (!curSession.isEmpty()) {
+                        output.add(workers.submit(analyzeSession(svn, curSession)));
+                    }
+                    curSession = new ArrayList<>();
+                }
+                curSession.add(row);
+                previous = row;
+            }
+            if (!curSession.isEmpty() && !output.hasFailed()) {
+                output.add(workers.submit(analyzeSession(svn, curSession)));
+            }
+        } finally {
+            output.add(OrderedOutput.END);
+            writer.join();
+            workers.shutdownNow();
+            //an error in an earlier session takes precedence, like in the sequential analysis
+            output.rethrowError();
         }
-        return string.substring(1, string.length() - 1);
+    }
+
+    private static Callable<String> analyzeSession(SvnChangesets svn, List<NavigationRow> rows) {
+        return () -> {
+            final NavigationRow first = rows.get(0);
+            final NavigationSession session = new NavigationSession(svn, first.ticket, first.user, first.session);
+            for (final NavigationRow row : rows) {
+                session.addEvent(row.eventType, row.files, row.jumpType);
+            }
+            return session.format();
+        };
     }
 
 }
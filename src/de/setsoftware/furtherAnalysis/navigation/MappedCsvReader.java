@@ -0,0 +1,202 @@
+package de.setsoftware.furtherAnalysis.navigation;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads lines of semicolon separated, quoted fields from a memory mapped file. Like String.split(";"), every
+ * semicolon separates fields and trailing empty fields are dropped. Only the fields that are requested are
+ * decoded; when a field has the same content as in the previous line, the previous string is returned again.
+ * Files that are larger than the mapping window are mapped piece by piece, starting at a line boundary.
+ */
+final class MappedCsvReader implements Closeable {
+
+    private static final int DEFAULT_WINDOW_SIZE = 1 << 30;
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private final int windowSize;
+    private final Charset charset;
+
+    private MappedByteBuffer buffer;
+    private long bufferStart;
+    private int nextLineStart;
+
+    private int lineStart;
+    private int lineEnd;
+    //positions of the semicolons in the current line
+    private int[] separators = new int[16];
+    private int separatorCount;
+    private int fieldCount;
+
+    //per column: the bytes and the string of the last decoded value
+    private byte[][] previousBytes = new byte[0][];
+    private int[] previousLengths = new int[0];
+    private String[] previousValues = new String[0];
+
+    public MappedCsvReader(File file, Charset charset) throws IOException {
+        this(file, charset, DEFAULT_WINDOW_SIZE);
+    }
+
+    MappedCsvReader(File file, Charset charset, int windowSize) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        this.fileSize = this.channel.size();
+        this.windowSize = windowSize;
+        this.charset = charset;
+    }
+
+    /**
+     * Moves to the next line. Lines are terminated by "\n", "\r" or "\r\n", like with BufferedReader.readLine.
+     * Returns false at the end of the file.
+     */
+    public boolean nextLine() throws IOException {
+        while (true) {
+            if (this.bufferStart + this.nextLineStart >= this.fileSize) {
+                return false;
+            }
+            if (this.buffer == null) {
+                this.map(0);
+            }
+            if (this.scanLine()) {
+                return true;
+            }
+            //the line continues after the end of the mapped window
+            if (this.nextLineStart == 0) {
+                throw new IOException("line longer than " + this.windowSize + " bytes at offset " + this.bufferStart);
+            }
+            this.map(this.bufferStart + this.nextLineStart);
+        }
+    }
+
+    private void map(long start) throws IOException {
+        final long size = Math.min(this.windowSize, this.fileSize - start);
+        this.buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+        this.bufferStart = start;
+        this.nextLineStart = 0;
+    }
+
+    private boolean scanLine() {
+        final MappedByteBuffer buf = this.buffer;
+        final int limit = buf.limit();
+        final boolean endOfFile = this.bufferStart + limit >= this.fileSize;
+        this.separatorCount = 0;
+        int i = this.nextLineStart;
+        byte b = 0;
+        while (i < limit) {
+            b = buf.get(i);
+            if (b == '\n' || b == '\r') {
+                break;
+            }
+            if (b == ';') {
+                if (this.separatorCount == this.separators.length) {
+                    this.separators = Arrays.copyOf(this.separators, this.separatorCount * 2);
+                }
+                this.separators[this.separatorCount++] = i;
+            }
+            i++;
+        }
+        if (!endOfFile && (i == limit || (i == limit - 1 && b == '\r'))) {
+            //the line or its "\r\n" terminator may continue in the next window
+            return false;
+        }
+        this.lineStart = this.nextLineStart;
+        this.lineEnd = i;
+        if (i < limit) {
+            i++;
+            if (b == '\r' && i < limit && buf.get(i) == '\n') {
+                i++;
+            }
+        }
+        this.nextLineStart = i;
+        this.fieldCount = this.determineFieldCount();
+        return true;
+    }
+
+    private int determineFieldCount() {
+        if (this.lineStart == this.lineEnd) {
+            return 1;
+        }
+        int count = this.separatorCount + 1;
+        while (count > 0 && this.fieldStart(count - 1) == this.fieldEnd(count - 1)) {
+            count--;
+        }
+        return count;
+    }
+
+    private int fieldStart(int column) {
+        return column == 0 ? this.lineStart : this.separators[column - 1] + 1;
+    }
+
+    private int fieldEnd(int column) {
+        return column == this.separatorCount ? this.lineEnd : this.separators[column];
+    }
+
+    /**
+     * Returns the content of the given field of the current line without the enclosing quotes.
+     * Throws an exception when the field does not exist or is not enclosed in quotes.
+     */
+    public String getQuotedField(int column) {
+        if (column >= this.fieldCount) {
+            throw new RuntimeException("parse error: " + this.decode(this.lineStart, this.lineEnd));
+        }
+        final int start = this.fieldStart(column);
+        final int end = this.fieldEnd(column);
+        if (end - start < 2 || this.buffer.get(start) != '"' || this.buffer.get(end - 1) != '"') {
+            throw new RuntimeException("parse error: " + this.decode(start, end));
+        }
+        return this.decodeColumn(column, start + 1, end - 1);
+    }
+
+    private String decodeColumn(int column, int start, int end) {
+        if (column >= this.previousValues.length) {
+            this.previousBytes = Arrays.copyOf(this.previousBytes, column + 1);
+            this.previousLengths = Arrays.copyOf(this.previousLengths, column + 1);
+            this.previousValues = Arrays.copyOf(this.previousValues, column + 1);
+        }
+        final int length = end - start;
+        byte[] bytes = this.previousBytes[column];
+        if (this.previousValues[column] != null && this.previousLengths[column] == length) {
+            boolean same = true;
+            for (int i = 0; i < length; i++) {
+                if (bytes[i] != this.buffer.get(start + i)) {
+                    same = false;
+                    break;
+                }
+            }
+            if (same) {
+                return this.previousValues[column];
+            }
+        }
+        if (bytes == null || bytes.length < length) {
+            bytes = new byte[Math.max(length, 64)];
+            this.previousBytes[column] = bytes;
+        }
+        for (int i = 0; i < length; i++) {
+            bytes[i] = this.buffer.get(start + i);
+        }
+        final String value = new String(bytes, 0, length, this.charset);
+        this.previousLengths[column] = length;
+        this.previousValues[column] = value;
+        return value;
+    }
+
+    private String decode(int start, int end) {
+        final byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = this.buffer.get(start + i);
+        }
+        return new String(bytes, this.charset);
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+}
@@ -1,10 +1,14 @@
 package de.setsoftware.furtherAnalysis.navigation;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 public class NavigationSession {
 
@@ -17,9 +21,77 @@ public class NavigationSession {
         OTHER
     }
 
+    /**
+     * How the user got to a file in the review, relative to the previous file in the tool order.
+     * For the first navigation, the "previous file" is the position before the first stop.
+     */
+    public enum Category {
+        /**
+         * The user pressed "jump to next".
+         */
+        TOOL_NEXT,
+        /**
+         * The file directly follows the previous one in the tool order (for the first navigation:
+         * the user started with the first stop in the tree, but did not use jump next).
+         */
+        DIRECTLY_AFTER,
+        /**
+         * The file comes later in the tool order and the stops in between were never visited,
+         * so they were probably skipped.
+         */
+        SKIP,
+        /**
+         * Any other navigation, e.g. explicitly choosing a file that was not the next one
+         * and later also reviewing the earlier ones.
+         */
+        OTHER
+    }
+
+    /**
+     * A file navigation in the session together with its category.
+     */
+    public static final class Classification {
+        private final String file;
+        private final int toolOrderIndex;
+        private final boolean start;
+        private final Category category;
+
+        private Classification(String file, int toolOrderIndex, boolean start, Category category) {
+            this.file = file;
+            this.toolOrderIndex = toolOrderIndex;
+            this.start = start;
+            this.category = category;
+        }
+
+        public String getFile() {
+            return this.file;
+        }
+
+        /**
+         * Returns the position of the file in the tool order, or -1 if it is not part of the review.
+         */
+        public int getToolOrderIndex() {
+            return this.toolOrderIndex;
+        }
+
+        /**
+         * Returns true for the first navigation of the session.
+         */
+        public boolean isStart() {
+            return this.start;
+        }
+
+        public Category getCategory() {
+            return this.category;
+        }
+    }
+
     private static final class FileNavEvent {
         private final String file;
         private final FileNavType type;
+        //determined by the classification
+        private int toolOrderIndex;
+        private Category category;
 
         public FileNavEvent(String file, FileNavType type) {
             this.type = type;
@@ -29,14 +101,42 @@ public class NavigationSession {
         public boolean isToolNext() {
             return this.type == FileNavType.JUMP_NEXT;
         }
+    }
+
+    /**
+     * Position of every file in the tool order and the positions of the visited files, so that
+     * the classification needs no list copies and linear searches.
+     */
+    private static final class ToolOrderIndex {
+        private final Map<String, Integer> positions;
+        private final int fileCount;
+        private final BitSet visited = new BitSet();
+        private final boolean fromChangeset;
+
+        public ToolOrderIndex(List<String> filesInToolOrder, boolean fromChangeset) {
+            this.positions = new HashMap<>(filesInToolOrder.size() * 2);
+            for (int i = 0; i < filesInToolOrder.size(); i++) {
+                this.positions.put(filesInToolOrder.get(i), i);
+            }
+            this.fileCount = filesInToolOrder.size();
+            this.fromChangeset = fromChangeset;
+        }
+
+        public int indexOf(String file) {
+            final Integer position = this.positions.get(file);
+            return position == null ? -1 : position;
+        }
 
-        public boolean isDirectlyAfter(int i, NavigationSession s) {
-            return this.type != FileNavType.JUMP_NEXT && s.alphabeticIndex(this) == i + 1;
+        public void markVisited(String file) {
+            final Integer position = this.positions.get(file);
+            if (position != null) {
+                this.visited.set(position);
+            }
         }
 
-        public boolean isSkipAfter(int i, NavigationSession s) {
-            final int ownIndex = s.alphabeticIndex(this);
-            return this.type != FileNavType.JUMP_NEXT && ownIndex > i + 1 && s.allNonVisited(i + 1, ownIndex);
+        public boolean allNonVisited(int startIndexIncl, int endIndexExcl) {
+            final int nextVisited = this.visited.nextSetBit(startIndexIncl);
+            return nextVisited < 0 || nextVisited >= endIndexExcl;
         }
     }
 
@@ -50,6 +150,10 @@ public class NavigationSession {
     private String curFile;
     private String expectedFromJump;
     private FileNavType jumpType;
+    private ToolOrderIndex toolOrderIndex;
+    //counts per category for the first and the further navigations, null when not classified yet
+    private int[] startCounts;
+    private int[] furtherCounts;
 
 
     public NavigationSession(SvnChangesets svn, String ticketKey, String user, String session) {
@@ -91,15 +195,29 @@ public class NavigationSession {
                 return;
             }
             if (fileNorm.equals(this.expectedFromJump)) {
-                this.events.add(new FileNavEvent(fileNorm, this.jumpType));
+                this.addFileNavEvent(new FileNavEvent(fileNorm, this.jumpType));
             } else {
-                this.events.add(new FileNavEvent(fileNorm, FileNavType.OTHER));
+                this.addFileNavEvent(new FileNavEvent(fileNorm, FileNavType.OTHER));
             }
             this.expectedFromJump = null;
             this.curFile = fileNorm;
         }
     }
 
+    private void addFileNavEvent(FileNavEvent event) {
+        this.events.add(event);
+        this.startCounts = null;
+        this.furtherCounts = null;
+        if (this.toolOrderIndex != null) {
+            if (this.toolOrderIndex.fromChangeset) {
+                this.toolOrderIndex.markVisited(event.file);
+            } else {
+                //the order is determined from the visited files, so it can change with every new file
+                this.toolOrderIndex = null;
+            }
+        }
+    }
+
     private String normalizeFile(String files) {
         if (files.startsWith("[") && files.endsWith("]")) {
             if (files.contains(", ")) {
@@ -144,157 +262,109 @@ public class NavigationSession {
     }
 
     public void print() {
-        final Set<String> visited = this.getVisitedFiles();
-        final List<String> toReview = this.getFilesInToolOrder();
-        final Set<String> checked = new HashSet<>(visited);
-        checked.retainAll(toReview);
-        final Set<String> extra = new HashSet<>(visited);
-        extra.removeAll(toReview);
-        final Set<String> nonVisited = new HashSet<>(toReview);
-        nonVisited.removeAll(visited);
-
-        System.out.println(String.format("%s;%s;%d;%d;%d;%d;%d;%d;%d;%d;%d;%d;%d;%d",
-                        this.user,
-                        this.session,
-                        checked.size(),
-                        extra.size(),
-                        nonVisited.size(),
-                        this.events.size(),
-                        this.getStartToolNext(),
-                        this.getStartFirst(),
-                        this.getStartSkip(),
-                        this.getStartOther(),
-                        this.getFurtherToolNext(),
-                        this.getFurtherDirectAfter(),
-                        this.getFurtherSkip(),
-                        this.getFurtherOther()));
+        System.out.println(this.format());
     }
 
     /**
-     * The user pressed "jump to next" to get to the first stop.
+     * Returns the line that {@link #print()} writes for this session.
      */
-    private int getStartToolNext() {
-        if (this.events.isEmpty()) {
-            return 0;
-        }
-        return this.events.get(0).isToolNext() ? 1 : 0;
-    }
+    public String format() {
+        final Set<String> visited = this.getVisitedFiles();
+        final ToolOrderIndex index = this.getToolOrderIndex();
+        final int checked = index.visited.cardinality();
+        final int extra = visited.size() - checked;
+        final int nonVisited = index.fileCount - checked;
 
-    /**
-     * The user started with the first stop in the tree, but did not use jump next.
-     */
-    private int getStartFirst() {
-        if (this.events.isEmpty()) {
-            return 0;
-        }
-        final FileNavEvent ev = this.events.get(0);
-        return ev.isDirectlyAfter(-1, this) ? 1 : 0;
+        return String.format("%s;%s;%d;%d;%d;%d;%d;%d;%d;%d;%d;%d;%d;%d",
+                        this.user,
+                        this.session,
+                        checked,
+                        extra,
+                        nonVisited,
+                        this.events.size(),
+                        this.getStartCount(Category.TOOL_NEXT),
+                        this.getStartCount(Category.DIRECTLY_AFTER),
+                        this.getStartCount(Category.SKIP),
+                        this.getStartCount(Category.OTHER),
+                        this.getFurtherCount(Category.TOOL_NEXT),
+                        this.getFurtherCount(Category.DIRECTLY_AFTER),
+                        this.getFurtherCount(Category.SKIP),
+                        this.getFurtherCount(Category.OTHER));
     }
 
     /**
-     * The user selected another stop as a first and never visited the earlier stops, so he
-     * probably decided to skip them.
+     * Determines the category of every file navigation in a single pass and counts them.
+     * The result is kept until further events are added.
      */
-    private int getStartSkip() {
-        if (this.events.isEmpty()) {
-            return 0;
+    private void classify() {
+        if (this.startCounts != null) {
+            return;
         }
-        final FileNavEvent ev = this.events.get(0);
-        return ev.isSkipAfter(-1, this) ? 1 : 0;
+        final ToolOrderIndex index = this.getToolOrderIndex();
+        final int[] start = new int[Category.values().length];
+        final int[] further = new int[Category.values().length];
+        int prevIndex = -1;
+        for (int i = 0; i < this.events.size(); i++) {
+            final FileNavEvent event = this.events.get(i);
+            final int ownIndex = index.indexOf(event.file);
+            event.toolOrderIndex = ownIndex;
+            event.category = categorize(event, prevIndex, ownIndex, index);
+            (i == 0 ? start : further)[event.category.ordinal()]++;
+            prevIndex = ownIndex;
+        }
+        this.startCounts = start;
+        this.furtherCounts = further;
     }
 
-    private boolean allNonVisited(int startIndexIncl, int endIndexExcl) {
-        final Set<String> visitedFiles = this.getVisitedFiles();
-        final List<String> filesInOrder = this.getFilesInToolOrder();
-        for (int i =  startIndexIncl; i < endIndexExcl; i++) {
-            if (visitedFiles.contains(filesInOrder.get(i))) {
-                return false;
-            }
+    private static Category categorize(FileNavEvent event, int prevIndex, int ownIndex, ToolOrderIndex index) {
+        if (event.isToolNext()) {
+            return Category.TOOL_NEXT;
+        } else if (ownIndex == prevIndex + 1) {
+            return Category.DIRECTLY_AFTER;
+        } else if (ownIndex > prevIndex + 1 && index.allNonVisited(prevIndex + 1, ownIndex)) {
+            return Category.SKIP;
+        } else {
+            return Category.OTHER;
         }
-        return true;
     }
 
     /**
-     * The user did something else to get to the first stop (i.e. he explicitly chose to start
-     * with a file that was not the first, but later also reviewed the first).
+     * Returns the classified file navigations of this session, in the order they occurred.
      */
-    private int getStartOther() {
-        if (this.events.isEmpty()) {
-            return 0;
-        }
-        return 1 - this.getStartToolNext() - this.getStartFirst() - this.getStartSkip();
+    public Stream<Classification> classifications() {
+        this.classify();
+        return IntStream.range(0, this.events.size()).mapToObj(i -> {
+            final FileNavEvent e = this.events.get(i);
+            return new Classification(e.file, e.toolOrderIndex, i == 0, e.category);
+        });
     }
 
-    private int getFurtherToolNext() {
-        int ret = 0;
-        for (int i = 1; i < this.events.size(); i++) {
-            if (this.events.get(i).isToolNext()) {
-                ret++;
-            }
-        }
-        return ret;
+    private int getStartCount(Category category) {
+        this.classify();
+        return this.startCounts[category.ordinal()];
     }
 
-    private int getFurtherDirectAfter() {
-        if (this.events.isEmpty()) {
-            return 0;
-        }
-        int ret = 0;
-        int prevIndex = this.alphabeticIndex(this.events.get(0));
-        for (int i = 1; i < this.events.size(); i++) {
-            final FileNavEvent event = this.events.get(i);
-            if (event.isDirectlyAfter(prevIndex, this)) {
-                ret++;
-            }
-            prevIndex = this.alphabeticIndex(event);
-        }
-        return ret;
+    private int getFurtherCount(Category category) {
+        this.classify();
+        return this.furtherCounts[category.ordinal()];
     }
 
-    private int getFurtherSkip() {
-        if (this.events.isEmpty()) {
-            return 0;
-        }
-        int ret = 0;
-        int prevIndex = this.alphabeticIndex(this.events.get(0));
-        for (int i = 1; i < this.events.size(); i++) {
-            final FileNavEvent event = this.events.get(i);
-            if (event.isSkipAfter(prevIndex, this)) {
-                ret++;
+    private ToolOrderIndex getToolOrderIndex() {
+        if (this.toolOrderIndex == null) {
+            final TreeSet<String> changesetFiles = this.svn.get(this.ticketKey);
+            final ToolOrderIndex index;
+            if (changesetFiles == null) {
+                //if no data is available, fall back to the visited files
+                index = new ToolOrderIndex(new ArrayList<>(this.getVisitedFiles()), false);
+            } else {
+                index = new ToolOrderIndex(new ArrayList<>(changesetFiles), true);
             }
-            prevIndex = this.alphabeticIndex(event);
-        }
-        return ret;
-    }
-
-    private int getFurtherOther() {
-        if (this.events.isEmpty()) {
-            return 0;
-        }
-        int ret = 0;
-        int prevIndex = this.alphabeticIndex(this.events.get(0));
-        for (int i = 1; i < this.events.size(); i++) {
-            final FileNavEvent event = this.events.get(i);
-            if (!(event.isToolNext() || event.isDirectlyAfter(prevIndex, this) || event.isSkipAfter(prevIndex, this))) {
-                ret++;
+            for (final FileNavEvent e : this.events) {
+                index.markVisited(e.file);
             }
-            prevIndex = this.alphabeticIndex(event);
-        }
-        return ret;
-    }
-
-    private int alphabeticIndex(FileNavEvent ev) {
-        return this.getFilesInToolOrder().indexOf(ev.file);
-    }
-
-    private List<String> getFilesInToolOrder() {
-        final TreeSet<String> changesetFiles = this.svn.get(this.ticketKey);
-        if (changesetFiles == null) {
-            //if no data is available, fall back to the visited files
-            return new ArrayList<>(this.getVisitedFiles());
-        } else {
-            return new ArrayList<>(changesetFiles);
+            this.toolOrderIndex = index;
         }
+        return this.toolOrderIndex;
     }
 
     private TreeSet<String> getVisitedFiles() {
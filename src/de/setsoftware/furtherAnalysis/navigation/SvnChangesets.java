@@ -1,23 +1,104 @@
 package de.setsoftware.furtherAnalysis.navigation;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.TreeSet;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ConcurrentHashMap;
 
-public class SvnChangesets {
+/**
+ * The files changed for each ticket, determined from an SVN log dump. The result of parsing the dump is
+ * stored in a binary index file, which is used instead of the dump as long as the size and modification time
+ * of the dump do not change. Only the ticket directory of the index is read on loading, the file list of a
+ * ticket is read and decoded when it is requested. An index that turns out to be broken is regarded as stale:
+ * the dump is parsed again and the index is rewritten.
+ */
+public class SvnChangesets implements Closeable {
 
-    private static final Pattern TICKET_PATTERN = Pattern.compile(".*(PSY-[0-9]+)[^0-9].*");
-    private final Map<String, TreeSet<String>> content = new HashMap<>();
+    private static final File DEFAULT_DUMP = new File("svndump.txt");
+    private static final File DEFAULT_INDEX = new File("svndump.idx");
+
+    private static final int INDEX_MAGIC = 0x53564e49;
+    private static final int INDEX_VERSION = 1;
+    private static final int HEADER_SIZE = 28;
+
+    //the file lists that are already available, all of them when the dump was parsed
+    private final Map<String, TreeSet<String>> content;
+    //the position of every ticket in the directory of the index, null when the dump was parsed
+    private final Map<String, Integer> ticketNumbers;
+    //the start of the file list in the index for every ticket, and the end of the last list
+    private final long[] listStarts;
+    private final FileChannel indexChannel;
+    //needed to rebuild a broken index
+    private final File dump;
+    private final File index;
+    private volatile boolean rebuilt;
+
+    private SvnChangesets() {
+        this.content = new HashMap<>();
+        this.ticketNumbers = null;
+        this.listStarts = null;
+        this.indexChannel = null;
+        this.dump = null;
+        this.index = null;
+    }
+
+    private SvnChangesets(
+            File dump, File index, FileChannel indexChannel, Map<String, Integer> ticketNumbers, long[] listStarts) {
+        this.content = new ConcurrentHashMap<>();
+        this.ticketNumbers = ticketNumbers;
+        this.listStarts = listStarts;
+        this.indexChannel = indexChannel;
+        this.dump = dump;
+        this.index = index;
+    }
 
     public static SvnChangesets load() throws IOException {
-        try (BufferedReader r = new BufferedReader(new FileReader("svndump.txt"))) {
-            return load(r);
+        return load(DEFAULT_DUMP, DEFAULT_INDEX);
+    }
+
+    /**
+     * Loads the changesets from the index file if it is up to date with the dump. Otherwise the dump
+     * is parsed and the index is (re)written.
+     */
+    public static SvnChangesets load(File dump, File index) throws IOException {
+        final SvnChangesets cached = readIndex(dump, index);
+        if (cached != null) {
+            return cached;
+        }
+        return parseAndWriteIndex(dump, index);
+    }
+
+    private static SvnChangesets parseAndWriteIndex(File dump, File index) throws IOException {
+        final long dumpSize = dump.length();
+        final long dumpLastModified = dump.lastModified();
+        final SvnChangesets ret;
+        try (BufferedReader r = new BufferedReader(new FileReader(dump))) {
+            ret = load(r);
         }
+        ret.writeIndex(index, dumpSize, dumpLastModified);
+        return ret;
     }
 
     private static SvnChangesets load(BufferedReader r) throws IOException {
@@ -32,9 +113,8 @@ public class SvnChangesets {
             } else if (line.equals("----")) {
                 inMessage = false;
             } else if (inMessage && ticketNumber == null) {
-                final Matcher m = TICKET_PATTERN.matcher(line);
-                if (m.matches()) {
-                    ticketNumber = m.group(1);
+                ticketNumber = findTicket(line);
+                if (ticketNumber != null) {
                     ret.content.put(ticketNumber, new TreeSet<>());
                 }
             } else {
@@ -56,6 +136,41 @@ public class SvnChangesets {
         return ret;
     }
 
+    /**
+     * Returns the ticket number in the line, with the same result as matching the line against
+     * ".*(PSY-[0-9]+)[^0-9].*": the last "PSY-" with digits that are followed by a further character.
+     * As "." does not match line separators, the line may only contain one directly after the digits.
+     * Returns null when there is no match.
+     */
+    static String findTicket(String line) {
+        int lineSeparatorCount = 0;
+        int lineSeparatorIndex = -1;
+        for (int i = 0; i < line.length(); i++) {
+            final char ch = line.charAt(i);
+            if (ch == '\u0085' || ch == '\u2028' || ch == '\u2029') {
+                lineSeparatorCount++;
+                lineSeparatorIndex = i;
+            }
+        }
+        if (lineSeparatorCount > 1) {
+            return null;
+        }
+        int start = line.lastIndexOf("PSY-");
+        while (start >= 0) {
+            final int digitsStart = start + 4;
+            int end = digitsStart;
+            while (end < line.length() && line.charAt(end) >= '0' && line.charAt(end) <= '9') {
+                end++;
+            }
+            if (end > digitsStart && end < line.length()
+                    && (lineSeparatorCount == 0 || lineSeparatorIndex == end)) {
+                return line.substring(start, end);
+            }
+            start = line.lastIndexOf("PSY-", start - 1);
+        }
+        return null;
+    }
+
     private static boolean isFile(String line) {
         //the log does not contain information whether an entry is a directory or a file
         //   therefore regard everything with a dot in it as file
@@ -72,8 +187,278 @@ public class SvnChangesets {
         return afterColon.trim().replace("/trunk/Workspace/", "");
     }
 
+    /**
+     * Writes the index: a header with the size and modification time of the dump, the tickets with the
+     * positions of their file lists, and the file lists. The files of a ticket are sorted, so every file is
+     * stored as the length of the prefix shared with the previous file and the remaining bytes.
+     * The file is replaced atomically, so that a crash while writing does not leave a broken index.
+     */
+    private void writeIndex(File index, long dumpSize, long dumpLastModified) throws IOException {
+        final Map<String, TreeSet<String>> sorted = new TreeMap<>(this.content);
+        final ByteArrayOutputStream fileLists = new ByteArrayOutputStream();
+        final Map<String, Integer> listOffsets = new HashMap<>();
+        for (final Map.Entry<String, TreeSet<String>> e : sorted.entrySet()) {
+            listOffsets.put(e.getKey(), fileLists.size());
+            writeVarInt(fileLists, e.getValue().size());
+            byte[] previous = new byte[0];
+            for (final String file : e.getValue()) {
+                final byte[] bytes = file.getBytes(StandardCharsets.UTF_8);
+                int shared = 0;
+                while (shared < previous.length && shared < bytes.length && previous[shared] == bytes[shared]) {
+                    shared++;
+                }
+                writeVarInt(fileLists, shared);
+                writeVarInt(fileLists, bytes.length - shared);
+                fileLists.write(bytes, shared, bytes.length - shared);
+                previous = bytes;
+            }
+        }
+
+        final File tmp = new File(index.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16))) {
+            out.writeInt(INDEX_MAGIC);
+            out.writeInt(INDEX_VERSION);
+            out.writeLong(dumpSize);
+            out.writeLong(dumpLastModified);
+            out.writeInt(sorted.size());
+            for (final String ticket : sorted.keySet()) {
+                final byte[] bytes = ticket.getBytes(StandardCharsets.UTF_8);
+                writeVarInt(out, bytes.length);
+                out.write(bytes);
+                writeVarInt(out, listOffsets.get(ticket));
+            }
+            fileLists.writeTo(out);
+        }
+        Files.move(tmp.toPath(), index.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads the header and the ticket directory from the given index. Returns null if it does not exist, is not an
+     * index in the current format, was created for a different version of the dump or is broken.
+     */
+    private static SvnChangesets readIndex(File dump, File index) throws IOException {
+        if (!index.exists()) {
+            return null;
+        }
+        final FileChannel channel = FileChannel.open(index.toPath(), StandardOpenOption.READ);
+        SvnChangesets ret = null;
+        try {
+            ret = readDirectory(dump, index, channel);
+        } catch (final IOException e) {
+            //a truncated or otherwise broken index is handled like a stale one
+        } finally {
+            if (ret == null) {
+                channel.close();
+            }
+        }
+        return ret;
+    }
+
+    private static SvnChangesets readDirectory(File dump, File index, FileChannel channel) throws IOException {
+        final long fileSize = channel.size();
+        if (fileSize < HEADER_SIZE) {
+            return null;
+        }
+        //the stream is not closed, as this would close the channel
+        final IndexInput in = new IndexInput(new BufferedInputStream(Channels.newInputStream(channel), 1 << 16));
+        if (in.readInt() != INDEX_MAGIC
+                || in.readInt() != INDEX_VERSION
+                || in.readLong() != dump.length()
+                || in.readLong() != dump.lastModified()) {
+            return null;
+        }
+        final int ticketCount = in.readInt();
+        //every ticket needs at least two bytes in the directory
+        if (ticketCount < 0 || ticketCount > (fileSize - HEADER_SIZE) / 2) {
+            throw new IOException("invalid ticket count " + ticketCount);
+        }
+        final Map<String, Integer> ticketNumbers = new HashMap<>();
+        final long[] listStarts = new long[ticketCount + 1];
+        for (int i = 0; i < ticketCount; i++) {
+            final byte[] key = in.readBytes(in.readVarInt(), fileSize);
+            ticketNumbers.put(new String(key, StandardCharsets.UTF_8), i);
+            listStarts[i] = in.readVarInt();
+        }
+        //the offsets of the file lists are relative to the end of the directory
+        final long directoryEnd = in.getPosition();
+        for (int i = 0; i < ticketCount; i++) {
+            listStarts[i] += directoryEnd;
+            if (listStarts[i] > fileSize || (i > 0 && listStarts[i] < listStarts[i - 1])) {
+                throw new IOException("invalid file list offset");
+            }
+        }
+        listStarts[ticketCount] = fileSize;
+        return new SvnChangesets(dump, index, channel, ticketNumbers, listStarts);
+    }
+
+    /**
+     * Sequential access to the header and the directory of the index that keeps track of the position.
+     */
+    private static final class IndexInput {
+        private final InputStream in;
+        private long position;
+
+        public IndexInput(InputStream in) {
+            this.in = in;
+        }
+
+        public int read() throws IOException {
+            final int b = this.in.read();
+            if (b < 0) {
+                throw new EOFException("index is truncated");
+            }
+            this.position++;
+            return b;
+        }
+
+        public int readInt() throws IOException {
+            return (this.read() << 24) | (this.read() << 16) | (this.read() << 8) | this.read();
+        }
+
+        public long readLong() throws IOException {
+            return ((long) this.readInt() << 32) | (this.readInt() & 0xFFFFFFFFL);
+        }
+
+        public int readVarInt() throws IOException {
+            int ret = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                final int b = this.read();
+                ret |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    if (ret < 0) {
+                        break;
+                    }
+                    return ret;
+                }
+            }
+            throw new IOException("invalid number at " + this.position);
+        }
+
+        public byte[] readBytes(int length, long fileSize) throws IOException {
+            if (length > fileSize - this.position) {
+                throw new EOFException("index is truncated");
+            }
+            final byte[] ret = new byte[length];
+            for (int i = 0; i < length; i++) {
+                ret[i] = (byte) this.read();
+            }
+            return ret;
+        }
+
+        public long getPosition() {
+            return this.position;
+        }
+    }
+
+    private TreeSet<String> decodeFiles(int ticketNumber) throws IOException {
+        final long start = this.listStarts[ticketNumber];
+        final long length = this.listStarts[ticketNumber + 1] - start;
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("invalid file list for ticket number " + ticketNumber);
+        }
+        final ByteBuffer buf = ByteBuffer.allocate((int) length);
+        while (buf.hasRemaining()) {
+            //positional reads can be done concurrently
+            if (this.indexChannel.read(buf, start + buf.position()) < 0) {
+                throw new EOFException("index is truncated");
+            }
+        }
+        buf.flip();
+        final int count = readVarInt(buf);
+        final TreeSet<String> ret = new TreeSet<>();
+        byte[] file = new byte[256];
+        int previousLength = 0;
+        for (int i = 0; i < count; i++) {
+            final int shared = readVarInt(buf);
+            final int rest = readVarInt(buf);
+            if (shared > previousLength || rest > buf.remaining()) {
+                throw new IOException("invalid file list for ticket number " + ticketNumber);
+            }
+            if (shared + rest > file.length) {
+                final byte[] larger = new byte[Math.max(shared + rest, file.length * 2)];
+                System.arraycopy(file, 0, larger, 0, shared);
+                file = larger;
+            }
+            buf.get(file, shared, rest);
+            previousLength = shared + rest;
+            ret.add(new String(file, 0, previousLength, StandardCharsets.UTF_8));
+        }
+        if (buf.hasRemaining()) {
+            throw new IOException("invalid file list for ticket number " + ticketNumber);
+        }
+        return ret;
+    }
+
+    private static void writeVarInt(OutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarInt(ByteBuffer buf) throws IOException {
+        int ret = 0;
+        for (int shift = 0; shift < 35 && buf.hasRemaining(); shift += 7) {
+            final byte b = buf.get();
+            ret |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                if (ret < 0) {
+                    break;
+                }
+                return ret;
+            }
+        }
+        throw new IOException("invalid number in the index");
+    }
+
     public TreeSet<String> get(String ticketKey) {
-        return this.content.get(ticketKey);
+        if (this.ticketNumbers == null || this.rebuilt) {
+            return this.content.get(ticketKey);
+        }
+        final Integer ticketNumber = this.ticketNumbers.get(ticketKey);
+        if (ticketNumber == null) {
+            return null;
+        }
+        try {
+            //can be called from several threads in the pipelined analysis
+            return this.content.computeIfAbsent(ticketKey, k -> {
+                try {
+                    return this.decodeFiles(ticketNumber);
+                } catch (final IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (final UncheckedIOException e) {
+            this.rebuild();
+            return this.content.get(ticketKey);
+        }
+    }
+
+    /**
+     * Called when a file list cannot be read from the index. The index is regarded as stale, so the dump is
+     * parsed again, the index is rewritten and all further requests are answered from the parsed data.
+     */
+    private synchronized void rebuild() {
+        if (this.rebuilt) {
+            return;
+        }
+        try {
+            this.indexChannel.close();
+            final SvnChangesets parsed = parseAndWriteIndex(this.dump, this.index);
+            this.content.clear();
+            this.content.putAll(parsed.content);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.rebuilt = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.indexChannel != null) {
+            this.indexChannel.close();
+        }
     }
 
 }
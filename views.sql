@@ -15,23 +15,8 @@ CREATE OR REPLACE VIEW filterEffectiveness AS SELECT
     AND si.name = 'size'
     AND e.eventType = 'relevanceFilterResult';
 
-CREATE OR REPLACE VIEW sessionsExt AS SELECT s.*, 
-    UNIX_TIMESTAMP(endTime) - UNIX_TIMESTAMP(startTime) AS duration,
-    (SELECT COUNT(*) FROM events WHERE eventType = 'remarkCreated' AND user = s.user AND session = s.session) AS createdRemarkCount,
-    (SELECT tool FROM events WHERE user = s.user AND session = s.session LIMIT 1) AS tool,
-    (SELECT value FROM propertyInEvent WHERE eventType = 'reviewEnded' AND name = 'endTransition' AND user = s.user AND session = s.session ORDER BY time DESC LIMIT 1) AS endType,
-    (SELECT COUNT(*) FROM events WHERE eventType = 'launch' AND user = s.user AND session = s.session) AS launchCount,
-    (SELECT MAX(size) FROM filterEffectiveness WHERE filterName = 'ignore changes in imports' AND user = s.user AND session = s.session) AS importFilterSize,
-    (SELECT MAX(size) FROM filterEffectiveness WHERE filterName = 'ignore whitespace only changes' AND user = s.user AND session = s.session) AS whitespaceFilterSize,
-    (SELECT CAST(value AS SIGNED) FROM propertyInEvent WHERE eventType = 'reviewStarted' AND name = 'cntTours' AND user = s.user AND session = s.session) AS tourCount,
-    (SELECT CAST(value AS SIGNED) FROM propertyInEvent WHERE eventType = 'originalTourStructure' AND name = 'cntTours' AND user = s.user AND session = s.session LIMIT 1) AS tourCountOriginal,
-    (SELECT CAST(value AS SIGNED) FROM propertyInEvent WHERE eventType = 'reviewStarted' AND name = 'cntStopsRel' AND user = s.user AND session = s.session) AS stopCountRel,
-    (SELECT CAST(value AS SIGNED) FROM propertyInEvent WHERE eventType = 'originalTourStructure' AND name = 'cntStops' AND user = s.user AND session = s.session LIMIT 1) AS stopCountOriginal,
-    (SELECT CAST(value AS SIGNED) FROM propertyInEvent WHERE eventType = 'reviewStarted' AND name = 'cntAddedLinesRel' AND user = s.user AND session = s.session) AS addedLinesRel,
-    (SELECT CAST(value AS SIGNED) FROM propertyInEvent WHERE eventType = 'originalTourStructure' AND name = 'cntAddedLines' AND user = s.user AND session = s.session LIMIT 1) AS addedLinesOriginal,
-    (SELECT CAST(value AS SIGNED) FROM propertyInEvent WHERE eventType = 'reviewStarted' AND name = 'cntRemovedLinesRel' AND user = s.user AND session = s.session) AS removedLinesRel,
-    (SELECT CAST(value AS SIGNED) FROM propertyInEvent WHERE eventType = 'originalTourStructure' AND name = 'cntRemovedLines' AND user = s.user AND session = s.session LIMIT 1) AS removedLinesOriginal
-    FROM sessions AS s;
+-- the per session metrics are computed by CortToSqlFull and written to the table sessions_ext
+CREATE OR REPLACE VIEW sessionsExt AS SELECT * FROM sessions_ext;
     
 CREATE OR REPLACE VIEW reviewsCort AS
    SELECT
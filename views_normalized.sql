@@ -0,0 +1,21 @@
+-- For an export with "--normalizedProperties": run this instead of views.sql, with the mysql client
+-- from this directory. It provides the former properties table as a view, so that the views in
+-- views.sql can be used unchanged, and then replaces the views that need numeric values by views
+-- on the typed column numValue.
+CREATE OR REPLACE VIEW properties AS SELECT v.user, v.time, d.name, v.value FROM propertyValues AS v INNER JOIN propertyNameDict AS d ON v.nameId = d.id;
+
+SOURCE views.sql;
+
+-- size is NULL instead of a truncated number when the value is not an integer
+CREATE OR REPLACE VIEW filterEffectiveness AS SELECT
+    e.time,
+    e.user,
+    e.session,
+    de.value AS filterName,
+    si.numValue AS size
+    FROM events AS e
+    INNER JOIN propertyValues AS de ON e.time = de.time AND e.user = de.user
+    INNER JOIN propertyValues AS si ON e.time = si.time AND e.user = si.user
+    WHERE de.nameId = (SELECT id FROM propertyNameDict WHERE name = 'description')
+    AND si.nameId = (SELECT id FROM propertyNameDict WHERE name = 'size')
+    AND e.eventType = 'relevanceFilterResult';